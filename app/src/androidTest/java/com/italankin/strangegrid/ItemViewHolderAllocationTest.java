@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import android.os.Build;
+import android.os.Debug;
+import android.support.test.annotation.UiThreadTest;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class ItemViewHolderAllocationTest {
+
+    private static final int BINDS = 1000;
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class);
+
+    @Test
+    @UiThreadTest
+    public void bindDoesNotAllocate() {
+        // runtime stats are available since M
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.M);
+        RecyclerView list = (RecyclerView) activityRule.getActivity().findViewById(R.id.list);
+        assertTrue(list.getChildCount() > 0);
+        // use holder of the attached and laid out item
+        DataAdapter.ItemViewHolder holder = (DataAdapter.ItemViewHolder) list.getChildViewHolder(
+                list.getChildAt(0));
+        // the first binds create text layouts and wrappers of the view
+        bind(holder, 0);
+
+        long allocated = allocatedObjects();
+        bind(holder, 1);
+        allocated = allocatedObjects() - allocated;
+
+        // the counter is global and is updated in chunks, so allow some noise from other threads,
+        // but not an object per bind
+        assertTrue("allocated " + allocated + " objects in " + BINDS + " binds", allocated < BINDS);
+    }
+
+    /**
+     * Binds the {@code holder} {@link #BINDS} times, every bind changes both label and color.
+     * After each bind the view is measured and laid out with its current bounds, like
+     * {@link RecyclerView} does for the rebound items.
+     */
+    private static void bind(DataAdapter.ItemViewHolder holder, int seed) {
+        View view = holder.itemView;
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(view.getWidth(), View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(view.getHeight(), View.MeasureSpec.EXACTLY);
+        for (int i = 0; i < BINDS; i++) {
+            int pos = seed * BINDS + i;
+            holder.bind(pos, 0xff000000 | pos * 0x9e3779);
+            view.measure(widthSpec, heightSpec);
+            view.layout(view.getLeft(), view.getTop(), view.getRight(), view.getBottom());
+        }
+    }
+
+    private static long allocatedObjects() {
+        return Long.parseLong(Debug.getRuntimeStat("art.gc.objects-allocated"));
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class JumpViewsReuseTest {
+
+    private static final int SIZE = 10000;
+    private static final int COLUMNS = 4;
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class);
+
+    private RecyclerView list;
+    private StrangeGridLayoutManager layoutManager;
+    private CountingAdapter adapter;
+
+    @Before
+    public void setUp() {
+        final MainActivity activity = activityRule.getActivity();
+        list = (RecyclerView) activity.findViewById(R.id.list);
+        layoutManager = (StrangeGridLayoutManager) list.getLayoutManager();
+        runAndLayout(new Runnable() {
+            @Override
+            public void run() {
+                // pool of the default size, which does not fit the screen of views
+                layoutManager.setRecycledViewsAutoSize(false);
+                list.setRecycledViewPool(new RecyclerView.RecycledViewPool());
+                layoutManager.setColumnCounts(new int[]{COLUMNS});
+                adapter = new CountingAdapter(activity);
+                adapter.setDataset(new int[SIZE]);
+                list.setAdapter(adapter);
+            }
+        });
+    }
+
+    @Test
+    public void jumpDown() {
+        assertJumpReusesViews(SIZE / 2);
+    }
+
+    @Test
+    public void jumpUp() {
+        scrollToPosition(SIZE / 2);
+        assertJumpReusesViews(0);
+    }
+
+    private void assertJumpReusesViews(int position) {
+        int childCount = list.getChildCount();
+        int created = adapter.createdCount;
+
+        scrollToPosition(position);
+
+        created = adapter.createdCount - created;
+        // the new visible area can have one more partially visible row
+        assertTrue("created " + created + " views for " + childCount + " attached",
+                created <= COLUMNS);
+    }
+
+    private void scrollToPosition(final int position) {
+        runAndLayout(new Runnable() {
+            @Override
+            public void run() {
+                layoutManager.scrollToPosition(position);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} on the main thread and waits for the layout it requests.
+     */
+    private static void runAndLayout(Runnable action) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(action);
+        instrumentation.waitForIdleSync();
+    }
+
+    private static class CountingAdapter extends DataAdapter {
+        int createdCount = 0;
+
+        CountingAdapter(Context context) {
+            super(context);
+        }
+
+        @Override
+        public ItemViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            createdCount++;
+            return super.onCreateViewHolder(parent, viewType);
+        }
+    }
+
+}
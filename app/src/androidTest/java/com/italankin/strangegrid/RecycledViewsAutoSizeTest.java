@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import android.app.Instrumentation;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+
+import com.italankin.strangegrid.StrangeGridLayoutManager.SharedRecycledViewPool;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class RecycledViewsAutoSizeTest {
+
+    /**
+     * View type of all items of the {@link DataAdapter}
+     */
+    private static final int VIEW_TYPE = 0;
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule = new ActivityTestRule<>(MainActivity.class);
+
+    private RecyclerView list;
+    private StrangeGridLayoutManager layoutManager;
+
+    @Before
+    public void setUp() {
+        list = (RecyclerView) activityRule.getActivity().findViewById(R.id.list);
+        layoutManager = (StrangeGridLayoutManager) list.getLayoutManager();
+    }
+
+    @Test
+    public void poolGrows() {
+        SharedRecycledViewPool pool = new SharedRecycledViewPool();
+        pool.setMaxRecycledViews(VIEW_TYPE, 1);
+        setPool(pool);
+
+        assertTrue(pool.getMaxRecycledViews(VIEW_TYPE) > 1);
+    }
+
+    @Test
+    public void poolNeverShrinksBelowAppSize() {
+        SharedRecycledViewPool pool = new SharedRecycledViewPool();
+        setPool(pool);
+        int appSize = pool.getMaxRecycledViews(VIEW_TYPE) + 100;
+
+        SharedRecycledViewPool appPool = new SharedRecycledViewPool();
+        appPool.setMaxRecycledViews(VIEW_TYPE, appSize);
+        setPool(appPool);
+
+        assertEquals(appSize, appPool.getMaxRecycledViews(VIEW_TYPE));
+    }
+
+    @Test
+    public void poolNeverShrinksForSmallerRows() {
+        SharedRecycledViewPool pool = new SharedRecycledViewPool();
+        setPool(pool);
+        setColumnCounts(16);
+        int size = pool.getMaxRecycledViews(VIEW_TYPE);
+
+        // pool is shared with the grid with less children in a row
+        setColumnCounts(1);
+
+        assertEquals(size, pool.getMaxRecycledViews(VIEW_TYPE));
+    }
+
+    private void setPool(final SharedRecycledViewPool pool) {
+        runAndLayout(new Runnable() {
+            @Override
+            public void run() {
+                list.setRecycledViewPool(pool);
+                list.requestLayout();
+            }
+        });
+    }
+
+    private void setColumnCounts(final int count) {
+        runAndLayout(new Runnable() {
+            @Override
+            public void run() {
+                layoutManager.setColumnCounts(new int[]{count});
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} on the main thread and waits for the layout it requests.
+     */
+    private static void runAndLayout(Runnable action) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(action);
+        instrumentation.waitForIdleSync();
+    }
+
+}
@@ -25,92 +25,160 @@ import android.view.View;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
 
-import java.util.HashMap;
-
-public class AnimateTouchListener extends RecyclerView.SimpleOnItemTouchListener {
+/**
+ * Lifts touched views. Should also be registered with
+ * {@link RecyclerView#addOnChildAttachStateChangeListener}, so animations are cancelled, when views
+ * are detached or recycled.
+ */
+public class AnimateTouchListener extends RecyclerView.SimpleOnItemTouchListener
+        implements RecyclerView.OnChildAttachStateChangeListener {
 
     private static final Interpolator INTERPOLATOR = new DecelerateInterpolator(1);
+    /**
+     * Max count of simultaneously running animations
+     */
+    private static final int POOL_SIZE = 4;
 
-    private final HashMap<View, AnimHolder> animHolders = new HashMap<>();
+    private final AnimHolder[] animHolders = new AnimHolder[POOL_SIZE];
+    private int nextAnimHolder = 0;
     private final int elevation;
     private View current;
 
     public AnimateTouchListener(Context context) {
         elevation = context.getResources().getDimensionPixelSize(R.dimen.touch_elevation);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            animHolders[i] = new AnimHolder();
+        }
     }
 
     @Override
     public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
         int action = e.getAction();
         if (action == MotionEvent.ACTION_DOWN) {
-            View view = rv.findChildViewUnder(e.getX(), e.getY());
+            View view = ClickListener.findChildViewUnder(rv, e.getX(), e.getY());
             if (view == null) {
                 return false;
             }
-            AnimHolder animHolder = animHolders.get(view);
-            if (animHolder == null) {
-                animHolder = new AnimHolder(view, elevation);
-                animHolders.put(view, animHolder);
-            }
-            animHolder.raiseUp();
+            obtainAnimHolder(view).animate(view, elevation);
             current = view;
         } else if (action == MotionEvent.ACTION_MOVE && current != null) {
-            AnimHolder animHolder = animHolders.get(current);
-            if (animHolder != null) {
-                animHolder.lowerDown();
-                current = null;
-            }
+            lowerCurrent();
         } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
             if (current != null) {
-                AnimHolder animHolder = animHolders.get(current);
-                if (animHolder != null) {
-                    animHolder.lowerDown();
-                    current = null;
-                }
+                lowerCurrent();
             }
         }
         return false;
     }
 
+    @Override
+    public void onChildViewAttachedToWindow(View view) {
+    }
+
+    @Override
+    public void onChildViewDetachedFromWindow(View view) {
+        AnimHolder animHolder = findAnimHolder(view);
+        if (animHolder != null) {
+            animHolder.cancel();
+        }
+        if (view == current) {
+            current = null;
+        }
+    }
+
+    private void lowerCurrent() {
+        AnimHolder animHolder = findAnimHolder(current);
+        if (animHolder != null) {
+            animHolder.animate(current, 0);
+        }
+        current = null;
+    }
+
+    private AnimHolder findAnimHolder(View view) {
+        for (AnimHolder animHolder : animHolders) {
+            if (animHolder.view == view) {
+                return animHolder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return holder, which animates the {@code view}, or a free one, or the oldest used one, if
+     * there are no free holders
+     */
+    private AnimHolder obtainAnimHolder(View view) {
+        AnimHolder free = null;
+        for (AnimHolder animHolder : animHolders) {
+            if (animHolder.view == view) {
+                return animHolder;
+            }
+            if (free == null && animHolder.view == null) {
+                free = animHolder;
+            }
+        }
+        if (free == null) {
+            free = animHolders[nextAnimHolder];
+            nextAnimHolder = (nextAnimHolder + 1) % POOL_SIZE;
+            free.cancel();
+        }
+        return free;
+    }
+
     private static class AnimHolder {
-        private final View view;
-        private final ObjectAnimator lift;
-        private final ObjectAnimator lower;
-        private final int elevation;
+        private final ObjectAnimator animator;
+        /**
+         * Currently animated view, {@code null} if holder is free
+         */
+        private View view;
+        private boolean lowering;
+        /**
+         * Whether the running animation was cancelled, so the view is not at rest
+         */
+        private boolean cancelled;
 
-        public AnimHolder(View view, int elevation) {
-            this.view = view;
-            this.elevation = elevation;
-            lift = ObjectAnimator.ofFloat(this.view, "elevation", 0, 0);
-            lift.setDuration(500);
-            lift.addListener(new AnimatorListenerAdapter() {
+        public AnimHolder() {
+            animator = ObjectAnimator.ofFloat((View) null, View.TRANSLATION_Z, 0, 0);
+            animator.setDuration(500);
+            animator.setInterpolator(INTERPOLATOR);
+            animator.addListener(new AnimatorListenerAdapter() {
                 @Override
                 public void onAnimationStart(Animator animation) {
-                    lower.cancel();
+                    cancelled = false;
                 }
-            });
-            lift.setInterpolator(INTERPOLATOR);
 
-            lower = ObjectAnimator.ofFloat(this.view, "elevation", 0, 0);
-            lower.setDuration(500);
-            lower.addListener(new AnimatorListenerAdapter() {
                 @Override
-                public void onAnimationStart(Animator animation) {
-                    lift.cancel();
+                public void onAnimationCancel(Animator animation) {
+                    cancelled = true;
                 }
-            });
 
-            lower.setInterpolator(INTERPOLATOR);
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    if (lowering && !cancelled) {
+                        // view is back at rest, release holder
+                        view = null;
+                    }
+                }
+            });
         }
 
-        public void raiseUp() {
-            lift.setFloatValues(view.getElevation(), elevation);
-            lift.start();
+        public void animate(View view, float translationZ) {
+            animator.cancel();
+            this.view = view;
+            lowering = translationZ == 0;
+            animator.setTarget(view);
+            animator.setFloatValues(view.getTranslationZ(), translationZ);
+            animator.start();
         }
 
-        public void lowerDown() {
-            lower.setFloatValues(view.getElevation(), 0);
-            lower.start();
+        public void cancel() {
+            // animator ends synchronously, so keep the view to reset it
+            View view = this.view;
+            animator.cancel();
+            if (view != null) {
+                view.setTranslationZ(0);
+            }
+            this.view = null;
         }
 
     }
@@ -39,8 +39,12 @@ public class ClickListener extends RecyclerView.SimpleOnItemTouchListener {
 
     @Override
     public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
-        View view = rv.findChildViewUnder(e.getX(), e.getY());
-        if (view != null && gestureDetector.onTouchEvent(e)) {
+        if (!gestureDetector.onTouchEvent(e)) {
+            // not a tap, skip hit testing
+            return false;
+        }
+        View view = findChildViewUnder(rv, e.getX(), e.getY());
+        if (view != null) {
             int pos = rv.getChildAdapterPosition(view);
             if (pos != RecyclerView.NO_POSITION) {
                 itemClickListener.onItemClick(rv, view, pos);
@@ -49,6 +53,14 @@ public class ClickListener extends RecyclerView.SimpleOnItemTouchListener {
         return false;
     }
 
+    static View findChildViewUnder(RecyclerView rv, float x, float y) {
+        RecyclerView.LayoutManager layoutManager = rv.getLayoutManager();
+        if (layoutManager instanceof StrangeGridLayoutManager) {
+            return ((StrangeGridLayoutManager) layoutManager).findViewAt(x, y);
+        }
+        return rv.findChildViewUnder(x, y);
+    }
+
     public interface OnItemClickListener {
         void onItemClick(RecyclerView recyclerView, View view, int position);
     }
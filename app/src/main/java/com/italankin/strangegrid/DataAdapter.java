@@ -17,30 +17,172 @@ package com.italankin.strangegrid;
 
 import android.content.Context;
 import android.graphics.Color;
-import android.graphics.PorterDuff;
 import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.shapes.OvalShape;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
-public class DataAdapter extends RecyclerView.Adapter<DataAdapter.ItemViewHolder> {
+public class DataAdapter extends RecyclerView.Adapter<DataAdapter.ItemViewHolder>
+        implements StrangeGridLayoutManager.StableIdLookup {
+
+    /**
+     * Payload for items, which have only their color changed
+     */
+    private static final Object PAYLOAD_COLOR = new Object();
 
     private final Context context;
-    private List<Integer> dataset;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int[] dataset = new int[0];
+    /**
+     * Unique ids of the items, if {@code null}, positions are used as ids
+     */
+    private long[] ids;
+    /**
+     * Index for looking up positions by ids: sorted {@link #ids} and corresponding positions. Built
+     * on demand.
+     */
+    private long[] indexIds;
+    private int[] indexPositions;
+    /**
+     * Executor for computing dataset diffs, if {@code null}, updates are applied synchronously
+     */
+    private Executor diffExecutor;
+    /**
+     * Incremented on each dataset update, used to drop results of outdated diffs
+     */
+    private int generation = 0;
 
     public DataAdapter(Context context) {
+        this(context, false);
+    }
+
+    /**
+     * @param context   context
+     * @param stableIds enables stable ids mode, so views of the items, whose ids are unchanged,
+     *                  will be reused after {@link #notifyDataSetChanged()}, unique ids must be
+     *                  passed to {@link #setDataset(int[], long[])}
+     */
+    public DataAdapter(Context context, boolean stableIds) {
         this.context = context;
+        setHasStableIds(stableIds);
+    }
+
+    /**
+     * Enables async diff mode. Datasets passed to {@link #setDataset(int[])} will be compared to
+     * the current one on the {@code executor} and the result will be dispatched on the main thread
+     * as range notifications.
+     *
+     * @param executor executor for computing diffs, {@code null} to disable async mode
+     */
+    public void setDiffExecutor(@Nullable Executor executor) {
+        diffExecutor = executor;
+    }
+
+    /**
+     * Sets a new dataset, items positions are used as their ids, so it must not be used in stable
+     * ids mode. Passed array must not be modified afterwards.
+     *
+     * @param dataset array of colors
+     */
+    public void setDataset(int[] dataset) {
+        setDataset(dataset, null);
+    }
+
+    /**
+     * Sets a new dataset. Passed arrays must not be modified afterwards.
+     *
+     * @param dataset array of colors
+     * @param ids     unique ids of the items, if {@code null}, positions will be used as ids
+     */
+    public void setDataset(int[] dataset, @Nullable final long[] ids) {
+        final int[] newDataset = dataset == null ? new int[0] : dataset;
+        if (ids == null && hasStableIds()) {
+            throw new IllegalStateException("ids must be set in stable ids mode");
+        }
+        if (ids != null && ids.length != newDataset.length) {
+            throw new IllegalArgumentException("ids length (" + ids.length +
+                    ") must be equal to dataset length (" + newDataset.length + ")");
+        }
+        final int gen = ++generation;
+        if (diffExecutor == null || this.dataset.length == 0 || newDataset.length == 0) {
+            applyDataset(newDataset, ids);
+            notifyDataSetChanged();
+            return;
+        }
+        final int[] oldDataset = this.dataset;
+        final long[] oldIds = this.ids;
+        diffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                        new ColorDiffCallback(oldDataset, oldIds, newDataset, ids), false);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (gen != generation) {
+                            // dataset was replaced while diff was computing
+                            return;
+                        }
+                        applyDataset(newDataset, ids);
+                        result.dispatchUpdatesTo(DataAdapter.this);
+                    }
+                });
+            }
+        });
+    }
+
+    private void applyDataset(int[] dataset, long[] ids) {
+        this.dataset = dataset;
+        this.ids = ids;
+        indexIds = null;
+        indexPositions = null;
+    }
+
+    /**
+     * @param id item id
+     * @return position of the item with {@code id}, or {@link RecyclerView#NO_POSITION}, if there is
+     * no such item
+     */
+    @Override
+    public int getPositionForId(long id) {
+        if (ids == null) {
+            return id >= 0 && id < dataset.length ? (int) id : RecyclerView.NO_POSITION;
+        }
+        if (indexIds == null) {
+            buildIdIndex();
+        }
+        int index = Arrays.binarySearch(indexIds, id);
+        return index >= 0 ? indexPositions[index] : RecyclerView.NO_POSITION;
+    }
+
+    private void buildIdIndex() {
+        long[] sorted = Arrays.copyOf(ids, ids.length);
+        Arrays.sort(sorted);
+        int[] positions = new int[ids.length];
+        for (int pos = 0, c = ids.length; pos < c; pos++) {
+            positions[Arrays.binarySearch(sorted, ids[pos])] = pos;
+        }
+        indexIds = sorted;
+        indexPositions = positions;
     }
 
-    public void setDataset(List<Integer> dataset) {
-        this.dataset = dataset == null ? Collections.<Integer>emptyList() : dataset;
-        notifyDataSetChanged();
+    /**
+     * @param position adapter position
+     * @return color of the item at {@code position}
+     */
+    public int getItem(int position) {
+        return dataset[position];
     }
 
     @Override
@@ -50,22 +192,37 @@ public class DataAdapter extends RecyclerView.Adapter<DataAdapter.ItemViewHolder
 
     @Override
     public void onBindViewHolder(ItemViewHolder holder, int position) {
-        holder.bind(position, dataset.get(position));
+        holder.bind(position, dataset[position]);
+    }
+
+    @Override
+    public void onBindViewHolder(ItemViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_COLOR)) {
+            holder.bindColor(dataset[position]);
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
     @Override
     public long getItemId(int position) {
-        return dataset.get(position);
+        return ids == null ? position : ids[position];
     }
 
     @Override
     public int getItemCount() {
-        return dataset.size();
+        return dataset.length;
     }
 
     public static class ItemViewHolder extends RecyclerView.ViewHolder {
         private final ShapeDrawable bg;
         private final TextView textView;
+        /**
+         * Buffer for the label, text view keeps reference to it, so it is not shared between holders
+         */
+        private final char[] label = new char[10];
+        private int boundPos = RecyclerView.NO_POSITION;
+        private int boundColor;
 
         public ItemViewHolder(View itemView) {
             super(itemView);
@@ -76,9 +233,79 @@ public class DataAdapter extends RecyclerView.Adapter<DataAdapter.ItemViewHolder
             textView.setGravity(Gravity.CENTER);
         }
 
-        public void bind(int pos, Integer color) {
-            bg.setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
-            textView.setText(String.valueOf(pos + 1));
+        public void bind(int pos, int color) {
+            bindColor(color);
+            if (pos != boundPos) {
+                // avoid requesting layout, if the label is unchanged
+                setLabel(pos + 1);
+                boundPos = pos;
+            }
+        }
+
+        public void bindColor(int color) {
+            if (boundPos == RecyclerView.NO_POSITION || color != boundColor) {
+                // changing paint color directly does not allocate color filter
+                bg.getPaint().setColor(color);
+                bg.invalidateSelf();
+                boundColor = color;
+            }
+        }
+
+        /**
+         * Sets non-negative {@code value} as text without allocating a string.
+         */
+        private void setLabel(int value) {
+            int start = label.length;
+            do {
+                label[--start] = (char) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            textView.setText(label, start, label.length - start);
+        }
+    }
+
+    /**
+     * Compares datasets of colors. Items with the same ids (positions, if ids are not set) are
+     * considered the same, and only their colors are compared.
+     */
+    private static class ColorDiffCallback extends DiffUtil.Callback {
+        private final int[] oldDataset;
+        private final long[] oldIds;
+        private final int[] newDataset;
+        private final long[] newIds;
+
+        ColorDiffCallback(int[] oldDataset, long[] oldIds, int[] newDataset, long[] newIds) {
+            this.oldDataset = oldDataset;
+            this.oldIds = oldIds;
+            this.newDataset = newDataset;
+            this.newIds = newIds;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldDataset.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newDataset.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            long oldId = oldIds == null ? oldItemPosition : oldIds[oldItemPosition];
+            long newId = newIds == null ? newItemPosition : newIds[newItemPosition];
+            return oldId == newId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldDataset[oldItemPosition] == newDataset[newItemPosition];
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return PAYLOAD_COLOR;
         }
     }
 
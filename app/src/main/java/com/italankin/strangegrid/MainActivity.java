@@ -30,24 +30,44 @@ import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.Toast;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity implements ClickListener.OnItemClickListener {
 
-    private static final String KEY_DATASET = "dataset";
+    private static final String KEY_SEGMENT_SEEDS = "segment_seeds";
+    private static final String KEY_SEGMENT_LENGTHS = "segment_lengths";
+    private static final String KEY_SEGMENT_IDS = "segment_ids";
+    private static final String KEY_NEXT_ID = "next_id";
     private static final String KEY_COLUMNS = "columns";
 
     private static final int[] COLUMNS = {4};
     private static final int SIZE = 10000;
 
-    private ArrayList<Integer> dataset;
+    private final Random random = new Random();
+    /**
+     * Dataset consists of segments of random colors, generated from the seeds, so only seeds and
+     * lengths of the segments have to be saved. Items of a segment have consecutive ids, starting
+     * from the segment id.
+     */
+    private long[] segmentSeeds;
+    private int[] segmentLengths;
+    private long[] segmentIds;
+    /**
+     * Id of the next new item, ids are never reused
+     */
+    private long nextId = 0;
+    private int[] dataset;
+    private long[] ids;
     private int[] columns = COLUMNS;
     private RecyclerView list;
     private StrangeGridLayoutManager layoutManager;
     private DataAdapter adapter;
     private AlertDialog alertDialog;
+    private ExecutorService diffExecutor;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,33 +77,127 @@ public class MainActivity extends AppCompatActivity implements ClickListener.OnI
         list = (RecyclerView) findViewById(R.id.list);
 
         if (savedInstanceState != null) {
-            dataset = savedInstanceState.getIntegerArrayList(KEY_DATASET);
+            segmentSeeds = savedInstanceState.getLongArray(KEY_SEGMENT_SEEDS);
+            segmentLengths = savedInstanceState.getIntArray(KEY_SEGMENT_LENGTHS);
+            segmentIds = savedInstanceState.getLongArray(KEY_SEGMENT_IDS);
+            nextId = savedInstanceState.getLong(KEY_NEXT_ID);
             columns = savedInstanceState.getIntArray(KEY_COLUMNS);
+            Object retained = getLastCustomNonConfigurationInstance();
+            dataset = retained instanceof int[] ? (int[]) retained : buildDataset();
+            ids = buildIds();
         } else {
-            dataset = generateDataset(SIZE);
+            generateDataset(SIZE);
         }
 
         final int margin = getResources().getDimensionPixelSize(R.dimen.child_padding);
         layoutManager = new StrangeGridLayoutManager(this);
         layoutManager.setColumnCounts(columns);
         layoutManager.setChildMargins(margin, margin);
+        layoutManager.setRecycledViewsAutoSize(true);
         list.setLayoutManager(layoutManager);
+        list.setRecycledViewPool(new StrangeGridLayoutManager.SharedRecycledViewPool());
 
-        adapter = new DataAdapter(this);
-        adapter.setDataset(dataset);
+        diffExecutor = Executors.newSingleThreadExecutor();
+        adapter = new DataAdapter(this, true);
+        adapter.setDataset(dataset, ids);
+        adapter.setDiffExecutor(diffExecutor);
         list.setAdapter(adapter);
 
-        list.addOnItemTouchListener(new AnimateTouchListener(this));
+        AnimateTouchListener animateTouchListener = new AnimateTouchListener(this);
+        list.addOnItemTouchListener(animateTouchListener);
+        list.addOnChildAttachStateChangeListener(animateTouchListener);
         list.addOnItemTouchListener(new ClickListener(this, this));
     }
 
-    private ArrayList<Integer> generateDataset(int size) {
-        Random random = new Random();
-        ArrayList<Integer> list = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            list.add(0xff000000 | random.nextInt());
+    /**
+     * Replaces dataset with a new one of the {@code size}.
+     */
+    private void generateDataset(int size) {
+        segmentSeeds = new long[]{random.nextLong()};
+        segmentLengths = new int[]{size};
+        segmentIds = new long[]{nextId};
+        nextId += size;
+        dataset = buildDataset();
+        ids = buildIds();
+    }
+
+    /**
+     * Replaces colors of all items, keeping their ids.
+     */
+    private void refreshColors() {
+        for (int i = 0; i < segmentSeeds.length; i++) {
+            segmentSeeds[i] = random.nextLong();
+        }
+        dataset = buildDataset();
+    }
+
+    /**
+     * Changes length of the dataset, keeping existing colors.
+     */
+    private void resizeDataset(int size) {
+        int current = dataset.length;
+        if (size < current) {
+            // cut segments
+            int count = 0;
+            int length = 0;
+            while (length < size) {
+                length += segmentLengths[count++];
+            }
+            segmentSeeds = Arrays.copyOf(segmentSeeds, count);
+            segmentLengths = Arrays.copyOf(segmentLengths, count);
+            segmentIds = Arrays.copyOf(segmentIds, count);
+            if (count > 0) {
+                segmentLengths[count - 1] -= length - size;
+            }
+        } else {
+            // append a new segment
+            int count = segmentSeeds.length;
+            segmentSeeds = Arrays.copyOf(segmentSeeds, count + 1);
+            segmentLengths = Arrays.copyOf(segmentLengths, count + 1);
+            segmentIds = Arrays.copyOf(segmentIds, count + 1);
+            segmentSeeds[count] = random.nextLong();
+            segmentLengths[count] = size - current;
+            segmentIds[count] = nextId;
+            nextId += size - current;
+        }
+        // adapter may still use current array for computing diff, so create a new one
+        int[] newDataset = Arrays.copyOf(dataset, size);
+        if (size > current) {
+            fillSegment(newDataset, current, segmentSeeds[segmentSeeds.length - 1], size - current);
+        }
+        dataset = newDataset;
+        ids = buildIds();
+    }
+
+    private int[] buildDataset() {
+        int size = 0;
+        for (int length : segmentLengths) {
+            size += length;
+        }
+        int[] result = new int[size];
+        for (int i = 0, from = 0; i < segmentSeeds.length; i++) {
+            fillSegment(result, from, segmentSeeds[i], segmentLengths[i]);
+            from += segmentLengths[i];
+        }
+        return result;
+    }
+
+    private long[] buildIds() {
+        long[] result = new long[dataset.length];
+        for (int i = 0, from = 0; i < segmentIds.length; i++) {
+            for (int j = 0; j < segmentLengths[i]; j++) {
+                result[from + j] = segmentIds[i] + j;
+            }
+            from += segmentLengths[i];
+        }
+        return result;
+    }
+
+    private static void fillSegment(int[] target, int from, long seed, int length) {
+        Random random = new Random(seed);
+        for (int i = from, end = from + length; i < end; i++) {
+            target[i] = 0xff000000 | random.nextInt();
         }
-        return list;
     }
 
     @Override
@@ -96,8 +210,8 @@ public class MainActivity extends AppCompatActivity implements ClickListener.OnI
     public boolean onOptionsItemSelected(MenuItem item) {
         switch (item.getItemId()) {
             case R.id.action_refresh:
-                dataset = generateDataset(dataset == null ? SIZE : dataset.size());
-                adapter.setDataset(dataset);
+                refreshColors();
+                adapter.setDataset(dataset, ids);
                 return true;
             case R.id.action_size:
                 showChangeSizeDialog();
@@ -121,16 +235,30 @@ public class MainActivity extends AppCompatActivity implements ClickListener.OnI
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        diffExecutor.shutdownNow();
+    }
+
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        return dataset;
+    }
+
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putIntegerArrayList(KEY_DATASET, dataset);
+        outState.putLongArray(KEY_SEGMENT_SEEDS, segmentSeeds);
+        outState.putIntArray(KEY_SEGMENT_LENGTHS, segmentLengths);
+        outState.putLongArray(KEY_SEGMENT_IDS, segmentIds);
+        outState.putLong(KEY_NEXT_ID, nextId);
         outState.putIntArray(KEY_COLUMNS, columns);
     }
 
     @Override
     public void onItemClick(RecyclerView recyclerView, View view, int position) {
-        int color = dataset.get(position);
+        int color = adapter.getItem(position);
         String s = String.format(Locale.getDefault(), "#%02x%02x%02x",
                 Color.red(color), Color.green(color), Color.blue(color));
         Toast.makeText(MainActivity.this, s, Toast.LENGTH_SHORT).show();
@@ -165,15 +293,11 @@ public class MainActivity extends AppCompatActivity implements ClickListener.OnI
                 } catch (NumberFormatException e) {
                     size = 0;
                 }
-                if (size == dataset.size()) {
+                if (size == dataset.length) {
                     return;
                 }
-                if (size < dataset.size()) {
-                    dataset = new ArrayList<>(dataset.subList(0, size));
-                } else {
-                    dataset.addAll(generateDataset(size - dataset.size()));
-                }
-                adapter.setDataset(dataset);
+                resizeDataset(size);
+                adapter.setDataset(dataset, ids);
             }
         });
         builder.setNegativeButton(android.R.string.cancel, null);
@@ -236,8 +360,8 @@ public class MainActivity extends AppCompatActivity implements ClickListener.OnI
                 int pos;
                 try {
                     pos = Integer.parseInt(s) - 1;
-                    if (pos > dataset.size()) {
-                        pos = dataset.size() - 1;
+                    if (pos > dataset.length) {
+                        pos = dataset.length - 1;
                     } else if (pos < 0) {
                         pos = 0;
                     }
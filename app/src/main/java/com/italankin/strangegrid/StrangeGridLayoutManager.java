@@ -18,72 +18,79 @@ package com.italankin.strangegrid;
 import android.content.Context;
 import android.graphics.PointF;
 import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.Trace;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.widget.LinearSmoothScroller;
 import android.support.v7.widget.RecyclerView;
 import android.util.SparseArray;
 import android.util.SparseIntArray;
+import android.view.Choreographer;
 import android.view.View;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
 
     /**
-     * Additional horizontal margin between child views
+     * If target of smooth scroll is further than this number of screens, layout will jump to this
+     * distance from the target first
      */
-    private int childMarginHorizontal = 0;
+    private static final int SMOOTH_SCROLL_JUMP_SCREENS = 3;
     /**
-     * Additional vertical margin between child views
+     * Max count of widths, for which adaptive configurations are cached
      */
-    private int childMarginVertical = 0;
+    private static final int ADAPTIVE_CONFIGS_CACHE_SIZE = 4;
 
     /**
-     * Array of column counts for each row. If there are more rows than specified in array,
-     * they will be cycled.
+     * Default sizes of the view cache and recycled view pool of RecyclerView, auto sizes are never
+     * less than them
      */
-    private int[] columnCounts = {3};
+    private static final int DEFAULT_VIEW_CACHE_SIZE = 2;
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private static final String TRACE_LAYOUT = "StrangeGrid layout";
+    private static final String TRACE_SCROLL = "StrangeGrid scroll";
+    private static final String TRACE_FILL = "StrangeGrid fill";
+
     /**
-     * Maximum number of children in single row
+     * Column counts, child sizes and offsets
      */
-    private int maxCount = columnCounts[0];
+    private final GridGeometry geometry = new GridGeometry();
     /**
      * Total rows count
      */
     private int rowsCount = 0;
-
-    /**
-     * Cache for quick access to row number by adapter position
-     */
-    private SparseIntArray rowsByPos = new SparseIntArray();
-    /**
-     * Child indicies within their row
-     */
-    private SparseIntArray indexInRow = new SparseIntArray();
     /**
      * Temporary view cache for single fill pass
      */
     private SparseArray<View> viewsCache = new SparseArray<>();
     /**
-     * Child size (every child is a square)
+     * Detached views, which will not be visible after the current fill pass (e.g. after a jump),
+     * they are rebound for the new positions, instead of being recycled into the pool, which may
+     * not fit all of them
+     */
+    private final ArrayList<View> spareViews = new ArrayList<>();
+    /**
+     * Whether adapter was updated since the last layout, views are not rebound in this case, so
+     * item animator does not move them from their old positions
      */
-    private int childSize;
+    private boolean adapterUpdated = false;
     /**
-     * {@link android.view.View.MeasureSpec} for {@link #childSize}
+     * {@link android.view.View.MeasureSpec} for the child size
      */
     private int childSizeSpec;
     /**
      * Total height of child views with vertical margins
      */
     private int childHeightTotal = 0;
-    /**
-     * Amount of horizontal space available to child views
-     */
-    private int availableWidth;
-
     /**
      * Current anchor view adapter position
      */
@@ -92,9 +99,39 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
      * Current anchor view scrolling offset
      */
     private int anchorViewOffset = 0;
+    /**
+     * Top of the anchor view's row, as it was laid out by the last fill pass
+     */
+    private int anchorRowTop = 0;
+    /**
+     * Stable id of the anchor item before the dataset was changed, and lookup for its new position,
+     * see {@link StableIdLookup}
+     */
+    private long pendingAnchorId = RecyclerView.NO_ID;
+    private StableIdLookup pendingAnchorLookup;
+    /**
+     * Whether all attached views should be scrapped on the next layout pass
+     */
+    private boolean pendingFullLayout = true;
+
+    /**
+     * Whether geometry computed by {@link #updateGeometry()} is still valid for the layout
+     * configuration (margins, column counts, adaptive mode)
+     */
+    private boolean geometryValid = false;
+    /**
+     * Layout size, paddings and item count, for which the geometry was computed
+     */
+    private int geometryWidth;
+    private int geometryHeight;
+    private int geometryPaddingLeft;
+    private int geometryPaddingTop;
+    private int geometryPaddingRight;
+    private int geometryPaddingBottom;
+    private int geometryItemCount;
+
     private Rect parentRect = new Rect();
     private Rect tmpRect = new Rect();
-    private int[] tmpOffsets = new int[2];
 
     /**
      * Enables adaptive children sizes
@@ -102,6 +139,82 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
     private boolean adaptive = false;
     private int adaptiveMinSize = 0;
     private int[] adaptiveOffsets;
+    /**
+     * Recently resolved adaptive configurations for different widths
+     */
+    private final AdaptiveConfig[] adaptiveConfigs = new AdaptiveConfig[ADAPTIVE_CONFIGS_CACHE_SIZE];
+    private int nextAdaptiveConfig = 0;
+
+    /**
+     * Count of additional rows to prefetch while the list is flinging
+     */
+    private int flingPrefetchRows = 2;
+    private int scrollState = RecyclerView.SCROLL_STATE_IDLE;
+    /**
+     * Count of items to prefetch, when this layout is nested in another RecyclerView, if 0, rows
+     * visible from the anchor row will be prefetched
+     */
+    private int initialPrefetchItemCount = 0;
+
+    /**
+     * Executor for building span rows, if {@code null}, rows are computed on demand on the main
+     * thread
+     */
+    private Executor spanRowsExecutor;
+    private Handler mainHandler;
+    /**
+     * {@link GridGeometry#getSpanRowsVersion()} of the span rows, which are being built, or -1
+     */
+    private int spanRowsBuildVersion = -1;
+
+    /**
+     * Lookup of the section headers, if {@code null}, there are no headers
+     */
+    private SectionLookup sectionLookup;
+    private int sectionHeaderHeight;
+    /**
+     * Buffer for header positions, read from the {@link #sectionLookup}
+     */
+    private int[] sectionHeaderPositions = new int[0];
+    /**
+     * {@link android.view.View.MeasureSpec}s for the section headers
+     */
+    private int headerWidthSpec;
+    private int headerHeightSpec;
+
+    /**
+     * Whether sizes of the recycled view pool and view cache are computed by this layout manager
+     */
+    private boolean recycledViewsAutoSize = false;
+    /**
+     * Max count of recycled views of each type, computed for the current geometry
+     */
+    private int recycledViewPoolSize = 0;
+    /**
+     * View cache size, computed for the current geometry, and the largest size applied to the
+     * RecyclerView
+     */
+    private int viewCacheSize = 0;
+    private int appliedViewCacheSize = -1;
+    /**
+     * View cache size, set by the app, auto size is never less than it
+     */
+    private int minViewCacheSize = DEFAULT_VIEW_CACHE_SIZE;
+    /**
+     * Pool, which was sized by this layout manager, and the largest pool sizes applied to it for
+     * each view type
+     */
+    private SharedRecycledViewPool sizedPool;
+    private final SparseIntArray sizedViewTypes = new SparseIntArray();
+    private RecyclerView recyclerView;
+
+    /**
+     * Stats of the passes of the current frame, {@code null}, if stats are disabled
+     */
+    private LayoutStats stats;
+    private OnLayoutStatsListener statsListener;
+    private Choreographer.FrameCallback statsFrameCallback;
+    private boolean statsFrameCallbackPosted = false;
 
     private LinearSmoothScroller smoothScroller;
 
@@ -112,8 +225,18 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
                 if (getChildCount() == 0) {
                     return null;
                 }
-                final int pos = getPosition(getChildAt(0));
-                return new PointF(0, targetPosition < pos ? -1 : 1);
+                return new PointF(0, computeScrollDistance(targetPosition));
+            }
+
+            @Override
+            protected void onSeekTargetStep(int dx, int dy, RecyclerView.State state, Action action) {
+                int jumpPosition = computeSmoothScrollJumpPosition(getTargetPosition());
+                if (jumpPosition != RecyclerView.NO_POSITION) {
+                    // target is too far, jump closer to it without laying out rows in between
+                    action.jumpTo(jumpPosition);
+                    return;
+                }
+                super.onSeekTargetStep(dx, dy, state, action);
             }
 
             @Override
@@ -124,29 +247,19 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
     }
 
     /**
-     * Sets column counts for this layout manager.
+     * Sets column counts for this layout manager. Current anchor item will be kept in place, views
+     * will be reused and re-measured only if child size changes.
      *
      * @param values array of ints, should not contain values < 1
      */
     public void setColumnCounts(@NonNull int[] values) {
-        if (values.length == 0) {
-            throw new IllegalArgumentException("Array must contain at least one value");
-        }
-        int max = 0;
-        for (int i = 0, l = values.length; i < l; i++) {
-            int v = values[i];
-            if (v <= 0) {
-                throw new IllegalArgumentException(
-                        "Zero and negative numbers should not be passed as a column count (found at index: " + i + ")");
-            }
-            if (v > max) {
-                max = v;
-            }
+        ColumnPattern pattern = new ColumnPattern(values);
+        if (!adaptive && pattern.equals(geometry.getColumnPattern())) {
+            return;
         }
-        maxCount = max;
-        columnCounts = Arrays.copyOf(values, values.length);
+        geometry.setColumnPattern(pattern);
         adaptive = false;
-        removeAllViews();
+        geometryValid = false;
         requestLayout();
     }
 
@@ -163,9 +276,9 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
         if (vertical < 0) {
             throw new IllegalArgumentException("vertical margin must be >= 0, found: " + vertical);
         }
-        if (childMarginHorizontal != horizontal || childMarginVertical != vertical) {
-            childMarginHorizontal = horizontal;
-            childMarginVertical = vertical;
+        if (geometry.getMarginHorizontal() != horizontal || geometry.getMarginVertical() != vertical) {
+            geometry.setMargins(horizontal, vertical);
+            geometryValid = false;
             requestLayout();
         }
     }
@@ -193,70 +306,476 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
         adaptive = true;
         adaptiveMinSize = minSize;
         adaptiveOffsets = offsets;
+        Arrays.fill(adaptiveConfigs, null);
+        geometryValid = false;
+        requestLayout();
+    }
+
+    /**
+     * Sets lookup for span sizes of the children. Span sizes greater than column count of the row
+     * are clamped. If the child does not fit remaining columns of the row, it will be placed in the
+     * next row.
+     *
+     * @param lookup span size lookup, {@code null} to make every child occupy a single column
+     */
+    public void setSpanSizeLookup(@Nullable SpanSizeLookup lookup) {
+        if (lookup != null && sectionLookup != null) {
+            throw new IllegalStateException("SpanSizeLookup is not supported with SectionLookup");
+        }
+        geometry.setSpanSizeProvider(lookup);
+        geometryValid = false;
+        pendingFullLayout = true;
+        requestLayout();
+    }
+
+    /**
+     * Sets lookup for the section headers. Each header occupies an entire row and column counts
+     * start over in the row after it. Header positions are read on each layout after adapter
+     * updates and indexed, so scrolling to positions and scroll bars do not depend on the items
+     * count. Cannot be used along with {@link SpanSizeLookup}.
+     *
+     * @param lookup       section lookup, {@code null} to remove headers
+     * @param headerHeight height of the header views, must be > 0
+     */
+    public void setSectionLookup(@Nullable SectionLookup lookup, int headerHeight) {
+        if (lookup != null) {
+            if (headerHeight <= 0) {
+                throw new IllegalArgumentException("headerHeight must be > 0, found: " + headerHeight);
+            }
+            if (geometry.getSpanSizeProvider() != null) {
+                throw new IllegalStateException("SectionLookup is not supported with SpanSizeLookup");
+            }
+        } else {
+            geometry.clearSectionHeaders();
+        }
+        sectionLookup = lookup;
+        sectionHeaderHeight = headerHeight;
+        geometryValid = false;
+        pendingFullLayout = true;
+        requestLayout();
+    }
+
+    /**
+     * Invalidates cached rows of the {@link SpanSizeLookup}. Should be called, when span sizes are
+     * changed without adapter notifications.
+     */
+    public void invalidateSpanSizes() {
+        geometry.invalidateSpanRows();
+        geometryValid = false;
+        requestLayout();
+    }
+
+    /**
+     * Sets count of rows, which will be prefetched in addition to the next row, while the list is
+     * flinging.
+     *
+     * @param rows count of rows, must be >= 0
+     */
+    public void setFlingPrefetchRows(int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("rows must be >= 0, found: " + rows);
+        }
+        flingPrefetchRows = rows;
+    }
+
+    /**
+     * Sets count of items, which will be prefetched before this layout becomes visible, if it is
+     * nested in another RecyclerView.
+     *
+     * @param count count of items, must be >= 0, 0 means that rows, visible from the current anchor
+     *              row, will be prefetched
+     */
+    public void setInitialPrefetchItemCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0, found: " + count);
+        }
+        initialPrefetchItemCount = count;
+    }
+
+    /**
+     * Enables or disables sizing of the view cache and {@link SharedRecycledViewPool} of the
+     * RecyclerView. Sizes are computed from the maximum count of children in a row and the count of
+     * visible rows, so views of the rows scrolled out of the visible area are not discarded.
+     * Disabled by default.
+     * <p>
+     * Sizes are never less than the ones set by the app. RecyclerView does not expose them, so the
+     * view cache size should be set with {@link #setItemViewCacheSize(int)}, and only pools of type
+     * {@link SharedRecycledViewPool} are sized, other pools are left untouched. A shared pool can be
+     * set to several grids, its sizes will only grow to fit the largest grid.
+     *
+     * @param enabled {@code true} to enable sizing
+     */
+    public void setRecycledViewsAutoSize(boolean enabled) {
+        recycledViewsAutoSize = enabled;
+        if (enabled) {
+            requestLayout();
+        } else {
+            sizedPool = null;
+            sizedViewTypes.clear();
+            appliedViewCacheSize = -1;
+        }
+    }
+
+    /**
+     * Sets view cache size of the RecyclerView. If {@link #setRecycledViewsAutoSize(boolean) auto
+     * size} is enabled, this method should be used instead of
+     * {@link RecyclerView#setItemViewCacheSize(int)}, computed size will never be less than
+     * {@code size}.
+     *
+     * @param size view cache size
+     */
+    public void setItemViewCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must be >= 0, found: " + size);
+        }
+        minViewCacheSize = size;
+        appliedViewCacheSize = -1;
+        if (recyclerView != null) {
+            applyViewCacheSize();
+        }
+    }
+
+    /**
+     * Enables collecting of layout stats. Stats of all layout and scroll passes of a frame are
+     * aggregated and delivered to the {@code listener} at the beginning of the next frame.
+     *
+     * @param listener listener, {@code null} to disable stats
+     */
+    public void setOnLayoutStatsListener(@Nullable OnLayoutStatsListener listener) {
+        statsListener = listener;
+        if (listener == null) {
+            stats = null;
+            if (statsFrameCallbackPosted) {
+                Choreographer.getInstance().removeFrameCallback(statsFrameCallback);
+                statsFrameCallbackPosted = false;
+            }
+            return;
+        }
+        if (stats == null) {
+            stats = new LayoutStats();
+        }
+        if (statsFrameCallback == null) {
+            statsFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    statsFrameCallbackPosted = false;
+                    if (stats != null) {
+                        statsListener.onLayoutStats(stats);
+                        stats.reset();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Enables building rows of the {@link SpanSizeLookup} on the {@code executor}. Until all rows
+     * are built, layout uses rows computed around the anchor and estimated scroll range, so the
+     * first layout pass does not depend on items count. After adapter updates only rows after the
+     * first changed item are built again, and scroll range is estimated from the previous rows.
+     * {@link SpanSizeLookup} must be safe to call from the executor's thread.
+     *
+     * @param executor executor, {@code null} to compute rows on the main thread
+     */
+    public void setSpanRowsExecutor(@Nullable Executor executor) {
+        spanRowsExecutor = executor;
+        spanRowsBuildVersion = -1;
+        if (executor != null && mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+        geometryValid = false;
+        requestLayout();
     }
 
     @Override
     public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        Trace.beginSection(TRACE_LAYOUT);
+        layoutChildren(recycler, state);
+        Trace.endSection();
+        if (stats != null) {
+            stats.layoutPasses++;
+            onStatsPassFinished();
+        }
+    }
+
+    private void layoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (state.isPreLayout()) {
+            if (getChildCount() > 0) {
+                // lay out views at their pre-layout positions using current geometry
+                fill(recycler, state, getAnchorView());
+            }
+            return;
+        }
+        if (pendingAnchorId != RecyclerView.NO_ID) {
+            restoreAnchorById();
+        }
+        int oldChildSize = geometry.getChildSize();
+        if (!isGeometryValid()) {
+            updateGeometry();
+        }
+        updateRecycledViewsSizes();
+
+        if (pendingFullLayout || geometry.getChildSize() != oldChildSize) {
+            pendingFullLayout = false;
+            detachAndScrapAttachedViews(recycler);
+        } else {
+            // views which are still valid only need to be repositioned
+            scrapUpdatedViews(recycler);
+        }
+        fill(recycler, state, null);
+    }
+
+    /**
+     * @return {@code true}, if none of the inputs of the geometry computed by the last
+     * {@link #updateGeometry()} call have changed
+     */
+    private boolean isGeometryValid() {
+        return geometryValid
+                && geometryWidth == getWidth()
+                && geometryHeight == getHeight()
+                && geometryPaddingLeft == getPaddingLeft()
+                && geometryPaddingTop == getPaddingTop()
+                && geometryPaddingRight == getPaddingRight()
+                && geometryPaddingBottom == getPaddingBottom()
+                && geometryItemCount == getItemCount();
+    }
+
+    /**
+     * Computes child sizes, column counts (in adaptive mode) and rows info for current layout
+     * configuration.
+     */
+    private void updateGeometry() {
         parentRect.set(0, 0, getWidth(), getHeight());
-        availableWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        int availableWidth = getWidth() - getPaddingLeft() - getPaddingRight();
         if (adaptive) {
-            // calculate child size
-            int newCount = availableWidth / Math.min(availableWidth, adaptiveMinSize);
-            if (newCount != maxCount) {
-                maxCount = newCount;
-                if (maxCount <= 0) {
-                    throw new IllegalStateException("Cannot calculate max count for min child size: " +
-                            adaptiveMinSize);
+            applyAdaptiveConfig(availableWidth);
+        }
+        geometry.setAvailableWidth(availableWidth);
+        childSizeSpec = View.MeasureSpec.makeMeasureSpec(geometry.getChildSize(), View.MeasureSpec.EXACTLY);
+
+        int itemCount = getItemCount();
+        if (sectionLookup != null) {
+            updateSectionHeaders(itemCount);
+        }
+        if (spanRowsExecutor != null && !geometry.isSpanRowsComplete(itemCount)) {
+            // start the build before partial rows replace the known ones
+            buildSpanRows(itemCount);
+            if (itemCount > 0) {
+                geometry.beginPartialSpanRows(Math.min(anchorViewPosition, itemCount - 1));
+            }
+            rowsCount = geometry.getEstimatedRowsCount(itemCount);
+        } else {
+            rowsCount = geometry.getRowsCount(itemCount);
+        }
+        childHeightTotal = geometry.getContentHeight(rowsCount);
+        int availableHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (childHeightTotal < availableHeight) {
+            anchorViewOffset = 0;
+        }
+
+        // a row can be partially visible at both edges
+        int rowHeight = geometry.getRowHeight();
+        int visibleRows = rowHeight > 0 ? (availableHeight + rowHeight - 1) / rowHeight + 1 : 1;
+        // keep enough views to refill the whole visible area (e.g. after a jump) and one more row,
+        // which is scrolled out, while the next one is being filled
+        recycledViewPoolSize = Math.max(DEFAULT_MAX_RECYCLED_VIEWS,
+                geometry.getMaxCount() * (visibleRows + 1));
+        // keep the row, which was just scrolled out, attachable without rebinding
+        viewCacheSize = Math.max(DEFAULT_VIEW_CACHE_SIZE, geometry.getMaxCount());
+
+        geometryWidth = getWidth();
+        geometryHeight = getHeight();
+        geometryPaddingLeft = getPaddingLeft();
+        geometryPaddingTop = getPaddingTop();
+        geometryPaddingRight = getPaddingRight();
+        geometryPaddingBottom = getPaddingBottom();
+        geometryItemCount = getItemCount();
+        geometryValid = true;
+    }
+
+    /**
+     * Reads header positions from the {@link #sectionLookup} and passes them to the geometry.
+     *
+     * @param itemCount items count
+     */
+    private void updateSectionHeaders(int itemCount) {
+        int count = sectionLookup.getSectionCount();
+        if (sectionHeaderPositions.length < count) {
+            sectionHeaderPositions = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            sectionHeaderPositions[i] = sectionLookup.getHeaderPosition(i);
+        }
+        geometry.setSectionHeaders(sectionHeaderPositions, count, sectionHeaderHeight, itemCount);
+        headerWidthSpec = View.MeasureSpec.makeMeasureSpec(geometry.getAvailableWidth(),
+                View.MeasureSpec.EXACTLY);
+        headerHeightSpec = View.MeasureSpec.makeMeasureSpec(sectionHeaderHeight, View.MeasureSpec.EXACTLY);
+    }
+
+    /**
+     * Applies sizes, computed by {@link #updateGeometry()}, to the view cache and recycled view
+     * pool of the RecyclerView.
+     */
+    private void updateRecycledViewsSizes() {
+        if (!recycledViewsAutoSize || recyclerView == null) {
+            return;
+        }
+        if (appliedViewCacheSize < viewCacheSize) {
+            applyViewCacheSize();
+        }
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        if (!(pool instanceof SharedRecycledViewPool)) {
+            // sizes of the app are unknown
+            sizedPool = null;
+            return;
+        }
+        if (pool != sizedPool) {
+            sizedPool = (SharedRecycledViewPool) pool;
+            sizedViewTypes.clear();
+            // attached views will be recycled into the new pool
+            for (int i = 0, c = getChildCount(); i < c; i++) {
+                int viewType = getItemViewType(getChildAt(i));
+                if (sizedViewTypes.get(viewType, -1) < 0) {
+                    sizePool(viewType);
                 }
-                if (adaptiveOffsets != null) {
-                    int c = adaptiveOffsets.length;
-                    if (c == 0) {
-                        columnCounts = new int[]{maxCount};
-                    } else {
-                        columnCounts = new int[c];
-                        for (int i = 0; i < c; i++) {
-                            // apply offsets
-                            columnCounts[i] = Math.max(1, maxCount - adaptiveOffsets[i]);
+            }
+        }
+        for (int i = 0, c = sizedViewTypes.size(); i < c; i++) {
+            if (sizedViewTypes.valueAt(i) < recycledViewPoolSize) {
+                sizePool(sizedViewTypes.keyAt(i));
+            }
+        }
+    }
+
+    /**
+     * Applies {@link #minViewCacheSize} and, if auto size is enabled, {@link #viewCacheSize} to the
+     * RecyclerView.
+     */
+    private void applyViewCacheSize() {
+        int size = recycledViewsAutoSize ? Math.max(minViewCacheSize, viewCacheSize) : minViewCacheSize;
+        recyclerView.setItemViewCacheSize(size);
+        appliedViewCacheSize = size;
+    }
+
+    /**
+     * Grows max count of views of the {@code viewType} in the {@link #sizedPool} to the
+     * {@link #recycledViewPoolSize}.
+     *
+     * @param viewType view type
+     */
+    private void sizePool(int viewType) {
+        sizedPool.growMaxRecycledViews(viewType, recycledViewPoolSize);
+        sizedViewTypes.put(viewType, recycledViewPoolSize);
+    }
+
+    /**
+     * Builds span rows on the {@link #spanRowsExecutor} and publishes them on the main thread, if
+     * they are still valid. Rows, which are known and valid (e.g. rows before the first changed
+     * item), are not computed again.
+     *
+     * @param itemCount items count
+     */
+    private void buildSpanRows(final int itemCount) {
+        final int version = geometry.getSpanRowsVersion();
+        if (spanRowsBuildVersion == version) {
+            // already building
+            return;
+        }
+        spanRowsBuildVersion = version;
+        final ColumnPattern pattern = geometry.getColumnPattern();
+        final GridGeometry.SpanSizeProvider provider = geometry.getSpanSizeProvider();
+        final SpanRowTable known = geometry.copyKnownSpanRows();
+        spanRowsExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SpanRowTable table = SpanRowTable.build(pattern, provider, itemCount, known);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (spanRowsBuildVersion == version) {
+                            spanRowsBuildVersion = -1;
+                        }
+                        if (geometry.publishSpanRowTable(table, version)) {
+                            // exact rows count and rows of the anchor are known now
+                            geometryValid = false;
+                            requestLayout();
                         }
                     }
-                } else {
-                    columnCounts = new int[]{maxCount};
-                }
+                });
             }
-        }
-        childSize = (availableWidth - childMarginHorizontal * (maxCount - 1)) / maxCount;
-        childSizeSpec = View.MeasureSpec.makeMeasureSpec(childSize, View.MeasureSpec.EXACTLY);
+        });
+    }
 
-        // create caches to avoid unnecesary computation
-        int rowIndex = 0;
-        int count = childCountForRow(rowIndex);
-        int current = 0;
-        rowsByPos.clear();
-        indexInRow.clear();
-        for (int i = 0, lastPos = getItemCount() - 1; i <= lastPos; i++) {
-            rowsByPos.put(i, rowIndex);
-            indexInRow.put(i, current);
-            current++;
-            if (current == count && i != lastPos) {
-                count = childCountForRow(++rowIndex);
-                current = 0;
+    /**
+     * Applies column counts for the {@code width} in adaptive mode. Resolved column counts are
+     * cached, so switching between recently used widths (e.g. on rotation) will reuse them.
+     *
+     * @param width available width
+     */
+    private void applyAdaptiveConfig(int width) {
+        AdaptiveConfig config = null;
+        for (AdaptiveConfig c : adaptiveConfigs) {
+            if (c != null && c.width == width) {
+                config = c;
+                break;
             }
         }
-        rowsCount = rowIndex + 1;
-        childHeightTotal = childSize * rowsCount + childMarginVertical * (rowsCount - 1);
-        if (childHeightTotal < getHeight() - getPaddingTop() - getPaddingBottom()) {
-            anchorViewOffset = 0;
+        if (config == null) {
+            // calculate child size
+            int maxCount = width / Math.min(width, adaptiveMinSize);
+            if (maxCount <= 0) {
+                throw new IllegalStateException("Cannot calculate max count for min child size: " +
+                        adaptiveMinSize);
+            }
+            int[] columnCounts;
+            if (adaptiveOffsets != null && adaptiveOffsets.length > 0) {
+                int c = adaptiveOffsets.length;
+                columnCounts = new int[c];
+                for (int i = 0; i < c; i++) {
+                    // apply offsets
+                    columnCounts[i] = Math.max(1, maxCount - adaptiveOffsets[i]);
+                }
+            } else {
+                columnCounts = new int[]{maxCount};
+            }
+            config = new AdaptiveConfig(width, new ColumnPattern(columnCounts));
+            adaptiveConfigs[nextAdaptiveConfig] = config;
+            nextAdaptiveConfig = (nextAdaptiveConfig + 1) % adaptiveConfigs.length;
+        }
+        if (geometry.getColumnPattern() != config.columnPattern) {
+            geometry.setColumnPattern(config.columnPattern);
         }
+    }
 
-        detachAndScrapAttachedViews(recycler);
-        fill(recycler);
+    /**
+     * Scraps attached views which were removed, changed or invalidated by adapter updates, so they
+     * will be rebound by the recycler. Other views will be reused by {@link #fill}.
+     *
+     * @param recycler recycler
+     */
+    private void scrapUpdatedViews(RecyclerView.Recycler recycler) {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View view = getChildAt(i);
+            RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+            if (lp.isItemRemoved() || lp.isItemChanged() || lp.isViewInvalid()) {
+                detachAndScrapView(view, recycler);
+            }
+        }
     }
 
     /**
      * Fills the layout.
+     *
+     * @param recycler   recycler
+     * @param state      state
+     * @param anchorView anchor view, if {@code null}, layout will be filled starting at
+     *                   {@link #anchorViewPosition}
      */
-    private void fill(RecyclerView.Recycler recycler) {
-        View anchorView = getAnchorView();
+    private void fill(RecyclerView.Recycler recycler, RecyclerView.State state, View anchorView) {
+        Trace.beginSection(TRACE_FILL);
+        final long startTime = stats != null ? System.nanoTime() : 0;
+        final boolean preLayout = state.isPreLayout();
+        int removedCount = 0;
         viewsCache.clear();
 
         // gather currently visible views into cache
@@ -264,149 +783,429 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
             View view = getChildAt(i);
             int pos = getPosition(view);
             viewsCache.put(pos, view);
+            if (preLayout && ((RecyclerView.LayoutParams) view.getLayoutParams()).isItemRemoved()) {
+                removedCount++;
+            }
         }
         // detach visible views
         for (int i = 0; i < viewsCache.size(); i++) {
             detachView(viewsCache.valueAt(i));
         }
 
-        if (anchorViewPosition >= getItemCount()) {
+        int itemCount = state.getItemCount();
+        if (anchorViewPosition >= itemCount) {
             anchorViewPosition = 0;
             anchorViewOffset = 0;
         }
 
+        // pre-layout pass must not change anchor
+        int savedPosition = anchorViewPosition;
+        int savedOffset = anchorViewOffset;
+        int savedRowTop = anchorRowTop;
+
+        final int startRow;
+        final int startTop;
+        if (anchorView != null) {
+            anchorViewPosition = getPosition(anchorView);
+            startRow = rowForPosition(anchorViewPosition);
+            startTop = getDecoratedTop(anchorView);
+            anchorViewOffset = startTop - getPaddingTop();
+        } else {
+            startRow = rowForPosition(anchorViewPosition);
+            startTop = computeChildTop(startRow) + anchorViewOffset;
+        }
+        anchorRowTop = startTop;
+
+        if (!preLayout && !state.willRunPredictiveAnimations()) {
+            releaseCachedViews(recycler, startRow, startTop);
+        }
+
         // fill the layout
-        fillUp(recycler, anchorView);
-        fillDown(recycler, anchorView);
+        fillUp(recycler, startRow, startTop, itemCount);
+        // in pre-layout, also lay out items which will move into the visible area to take the
+        // place of removed ones, add an extra row, since they can move to a row of greater size
+        fillDown(recycler, startRow, startTop, itemCount,
+                removedCount > 0 ? removedCount + geometry.getMaxCount() : 0);
 
-        // recycle any views, which were not attached to layout
-        for (int i = 0; i < viewsCache.size(); i++) {
-            recycler.recycleView(viewsCache.valueAt(i));
+        if (preLayout) {
+            anchorViewPosition = savedPosition;
+            anchorViewOffset = savedOffset;
+            anchorRowTop = savedRowTop;
         }
 
+        if (!preLayout && state.willRunPredictiveAnimations()) {
+            // views, which were visible before update, should be animated to their new positions
+            for (int i = 0; i < viewsCache.size(); i++) {
+                layoutDisappearingView(viewsCache.valueAt(i));
+            }
+            List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+            for (int i = scrapList.size() - 1; i >= 0; i--) {
+                RecyclerView.ViewHolder holder = scrapList.get(i);
+                RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) holder.itemView.getLayoutParams();
+                if (!lp.isItemRemoved()) {
+                    layoutDisappearingView(holder.itemView);
+                }
+            }
+        } else {
+            // recycle any views, which were not attached to layout
+            for (int i = 0; i < viewsCache.size(); i++) {
+                recycler.recycleView(viewsCache.valueAt(i));
+            }
+            for (int i = 0, c = spareViews.size(); i < c; i++) {
+                recycler.recycleView(spareViews.get(i));
+            }
+            if (stats != null) {
+                stats.viewsRecycled += viewsCache.size() + spareViews.size();
+            }
+        }
+        viewsCache.clear();
+        spareViews.clear();
+        if (!preLayout) {
+            adapterUpdated = false;
+        }
+        if (stats != null) {
+            stats.fillTimeNanos += System.nanoTime() - startTime;
+        }
+        Trace.endSection();
     }
 
     /**
-     * Fills the layout in up direction starting at anchor view position.
+     * Removes views from {@link #viewsCache}, which will not be visible after fill, so they could
+     * be rebound for the new positions instead of creating new ones (e.g. after jumping to another
+     * position). Views are moved to the {@link #spareViews}, or recycled, if adapter was updated.
      *
-     * @param recycler   recycler
-     * @param anchorView anchor view
+     * @param recycler recycler
+     * @param startRow anchor row
+     * @param startTop top of the anchor row
      */
-    private void fillUp(RecyclerView.Recycler recycler, View anchorView) {
-        final int startBottom;
-        final int startPos;
-        final int startLeft;
-        if (anchorView != null) {
-            startPos = getPosition(anchorView);
-            if (startPos == 0) {
-                return;
-            }
-            startBottom = anchorView.getBottom();
-            startLeft = anchorView.getLeft();
-        } else {
-            computeChildOffsets(anchorViewPosition, tmpOffsets);
-            startPos = anchorViewPosition;
-            startLeft = tmpOffsets[0];
-            startBottom = tmpOffsets[1] + childSize + anchorViewOffset;
-        }
-
-        int bottomMargin = 0;
-        int bottom = startBottom; // current bottom position
-        int currentRow = rowsByPos.get(startPos);
-        int currentIndex = indexInRow.get(startPos); // current view index within its row
-        int leftOffset = startLeft;
-        int count;
-
-        int pos = startPos;
-        while (bottom > bottomMargin && pos >= 0) {
-            // anchor view processed by fillDown
-            // this method needs it only to calculate next element
-            if (pos != startPos) {
-                View view = viewsCache.get(pos);
-                // view should be added/attached at index 0
-                if (view == null) {
-                    view = recycler.getViewForPosition(pos);
-                    addView(view, 0);
-                    view.measure(childSizeSpec, childSizeSpec);
-                    layoutDecorated(view, leftOffset, bottom - childSize, leftOffset + childSize, bottom);
+    private void releaseCachedViews(RecyclerView.Recycler recycler, int startRow, int startTop) {
+        if (viewsCache.size() == 0) {
+            return;
+        }
+        // find rows, which will be filled by fillUp and fillDown
+        int offset = geometry.getRowTop(startRow) - startTop;
+        int first = firstPositionInRow(geometry.rowAtOffset(offset));
+        int end = firstPositionInRow(Math.max(startRow, geometry.rowAtOffset(offset + getHeight())) + 1);
+        for (int i = viewsCache.size() - 1; i >= 0; i--) {
+            int pos = viewsCache.keyAt(i);
+            if (pos < first || pos >= end) {
+                if (adapterUpdated) {
+                    recycler.recycleView(viewsCache.valueAt(i));
+                    if (stats != null) {
+                        stats.viewsRecycled++;
+                    }
                 } else {
-                    attachView(view, 0);
-                    viewsCache.remove(pos);
+                    spareViews.add(viewsCache.valueAt(i));
                 }
+                viewsCache.removeAt(i);
             }
-            pos--;
-            // check if we have done with current row
-            if (--currentIndex < 0) {
-                // return if the the first row was processed
-                if (currentRow == 0) {
-                    return;
-                }
-                currentRow--;
-                count = childCountForRow(currentRow);
-                currentIndex = count - 1;
-                bottom -= childSize + childMarginVertical;
-                leftOffset = getChildLeftOffset(count, currentIndex);
-            } else {
-                // shift left margin
-                leftOffset -= childSize + childMarginHorizontal;
+        }
+    }
+
+    /**
+     * Takes a view of the same type as the item at the {@code pos} from the {@link #spareViews}.
+     *
+     * @param pos adapter position
+     * @return detached view, which should be rebound, or {@code null}, if there is no such view
+     */
+    private View takeSpareView(int pos) {
+        if (spareViews.isEmpty() || recyclerView == null) {
+            return null;
+        }
+        int viewType = recyclerView.getAdapter().getItemViewType(pos);
+        for (int i = spareViews.size() - 1; i >= 0; i--) {
+            View view = spareViews.get(i);
+            if (getItemViewType(view) == viewType) {
+                spareViews.remove(i);
+                return view;
             }
         }
+        return null;
     }
 
     /**
-     * Fills the layout in down direction, starting at anchor view position.
+     * Adds view, which is no longer visible after adapter update, as disappearing and lays it out
+     * at its new position relative to the anchor row, so item animator could move it there.
      *
-     * @param recycler   recycler
-     * @param anchorView anchor view
+     * @param view view
      */
-    private void fillDown(RecyclerView.Recycler recycler, View anchorView) {
-        final int startTop;
-        final int startPos;
-        final int startLeft;
-        if (anchorView != null) {
-            startPos = getPosition(anchorView);
-            startLeft = anchorView.getLeft();
-            startTop = anchorView.getTop();
-            anchorViewPosition = startPos;
-            anchorViewOffset = startTop - getPaddingTop();
+    private void layoutDisappearingView(View view) {
+        int pos = getPosition(view);
+        int row = rowForPosition(pos);
+        int top = anchorRowTop + geometry.getRowTop(row)
+                - geometry.getRowTop(rowForPosition(anchorViewPosition));
+        int left;
+        int width;
+        if (geometry.isHeaderRow(row)) {
+            left = getPaddingLeft();
+            width = geometry.getAvailableWidth();
         } else {
-            computeChildOffsets(anchorViewPosition, tmpOffsets);
-            startPos = anchorViewPosition;
-            startLeft = tmpOffsets[0];
-            startTop = tmpOffsets[1] + anchorViewOffset;
-        }
-
-        int topMargin = getHeight();
-        int top = startTop; // current top position
-        int currentRow = rowsByPos.get(startPos);
-        int count = childCountForRow(currentRow);
-        int currentIndex = indexInRow.get(startPos);
-        int leftOffset = startLeft;
-        int itemCount = getItemCount();
+            int count = geometry.childCountForRow(row);
+            left = getChildLeftOffset(count, geometry.spanIndexInRow(row, pos, getItemCount()));
+            width = geometry.getChildWidth(geometry.spanSizeInRow(row, pos, count));
+        }
+        addDisappearingView(view);
+        layoutDecorated(view, left, top, left + width, top + geometry.getRowSize(row));
+    }
+
+    /**
+     * Fills the layout in up direction, starting at the row above the anchor row.
+     *
+     * @param recycler  recycler
+     * @param startRow  anchor row
+     * @param startTop  top of the anchor row
+     * @param itemCount items count
+     */
+    private void fillUp(RecyclerView.Recycler recycler, int startRow, int startTop, int itemCount) {
+        final long startTime = stats != null ? System.nanoTime() : 0;
+        int row = startRow - 1;
+        int top = startTop;
+        while (row >= 0) {
+            top -= geometry.getRowHeight(row);
+            if (top + geometry.getRowSize(row) <= 0) {
+                break;
+            }
+            fillRow(recycler, row, top, itemCount, true);
+            row--;
+        }
+        if (stats != null) {
+            stats.fillUpTimeNanos += System.nanoTime() - startTime;
+        }
+    }
 
-        int pos = startPos;
-        while (top <= topMargin && pos < itemCount) {
+    /**
+     * Fills the layout in down direction, starting at the anchor row.
+     *
+     * @param recycler   recycler
+     * @param startRow   anchor row
+     * @param startTop   top of the anchor row
+     * @param itemCount  items count
+     * @param extraCount count of views to lay out below the bottom edge
+     */
+    private void fillDown(RecyclerView.Recycler recycler, int startRow, int startTop, int itemCount,
+            int extraCount) {
+        final long startTime = stats != null ? System.nanoTime() : 0;
+        int height = getHeight();
+        int row = startRow;
+        int top = startTop;
+        int extra = extraCount;
+        while ((top <= height || extra > 0) && firstPositionInRow(row) < itemCount) {
+            int added = fillRow(recycler, row, top, itemCount, false);
+            if (top > height) {
+                extra -= added;
+            }
+            top += geometry.getRowHeight(row);
+            row++;
+        }
+        if (stats != null) {
+            stats.fillDownTimeNanos += System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Recycles views of the rows, which were scrolled out of the visible area.
+     *
+     * @param recycler recycler
+     */
+    private void recycleInvisibleRows(RecyclerView.Recycler recycler) {
+        // children are ordered by their positions, so invisible rows are always at the edges
+        int childCount = getChildCount();
+        while (getChildCount() > 0 && getDecoratedBottom(getChildAt(0)) <= 0) {
+            removeAndRecycleViewAt(0, recycler);
+        }
+        int height = getHeight();
+        int last;
+        while ((last = getChildCount() - 1) >= 0 && getDecoratedTop(getChildAt(last)) > height) {
+            removeAndRecycleViewAt(last, recycler);
+        }
+        if (stats != null) {
+            stats.viewsRecycled += childCount - getChildCount();
+        }
+    }
+
+    /**
+     * Adds rows, which were scrolled into the visible area, above the first and below the last
+     * attached rows.
+     *
+     * @param recycler recycler
+     * @param state    state
+     */
+    private void fillEdges(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (getChildCount() == 0) {
+            fill(recycler, state, null);
+            return;
+        }
+        Trace.beginSection(TRACE_FILL);
+        final long startTime = stats != null ? System.nanoTime() : 0;
+        int itemCount = state.getItemCount();
+
+        View topView = getChildAt(0);
+        fillUp(recycler, rowForPosition(getPosition(topView)), getDecoratedTop(topView), itemCount);
+
+        View bottomView = getChildAt(getChildCount() - 1);
+        int bottomRow = rowForPosition(getPosition(bottomView));
+        fillDown(recycler, bottomRow + 1,
+                getDecoratedTop(bottomView) + geometry.getRowHeight(bottomRow), itemCount, 0);
+        if (stats != null) {
+            stats.fillTimeNanos += System.nanoTime() - startTime;
+        }
+        Trace.endSection();
+    }
+
+    /**
+     * Adds or reattaches views of the entire row. Views are taken from {@link #viewsCache}, if
+     * present there, otherwise {@link #spareViews} are rebound or views are obtained from the
+     * {@code recycler}.
+     *
+     * @param recycler  recycler
+     * @param row       row number
+     * @param top       top of the row
+     * @param itemCount items count
+     * @param prepend   {@code true}, if views should be added before other children, otherwise
+     *                  they will be added after
+     * @return count of views in the row
+     */
+    private int fillRow(RecyclerView.Recycler recycler, int row, int top, int itemCount,
+            boolean prepend) {
+        boolean header = geometry.isHeaderRow(row);
+        int count = geometry.childCountForRow(row);
+        int height = geometry.getRowSize(row);
+        int left = header ? getPaddingLeft() : getChildLeftOffset(count, 0);
+        int start = firstPositionInRow(row);
+        int end = Math.min(itemCount, firstPositionInRow(row + 1));
+        for (int pos = start, i = 0; pos < end; pos++, i++) {
+            int width = header ? geometry.getAvailableWidth()
+                    : geometry.getChildWidth(geometry.spanSizeInRow(row, pos, count));
             View view = viewsCache.get(pos);
             if (view == null) {
-                view = recycler.getViewForPosition(pos);
-                addView(view);
-                view.measure(childSizeSpec, childSizeSpec);
-                layoutDecorated(view, leftOffset, top, leftOffset + childSize, top + childSize);
+                view = takeSpareView(pos);
+                if (view != null) {
+                    recycler.bindViewToPosition(view, pos);
+                    if (prepend) {
+                        attachView(view, i);
+                    } else {
+                        attachView(view);
+                    }
+                } else {
+                    view = recycler.getViewForPosition(pos);
+                    if (sizedPool != null) {
+                        int viewType = getItemViewType(view);
+                        if (sizedViewTypes.get(viewType, -1) < recycledViewPoolSize) {
+                            // first view of this type, size the pool before it is recycled
+                            sizePool(viewType);
+                        }
+                    }
+                    if (prepend) {
+                        addView(view, i);
+                    } else {
+                        addView(view);
+                    }
+                }
+                if (stats != null) {
+                    stats.viewsObtained++;
+                }
+                measureChildIfNeeded(view, width, height);
+                layoutDecorated(view, left, top, left + width, top + height);
             } else {
-                attachView(view);
+                if (prepend) {
+                    attachView(view, i);
+                } else {
+                    attachView(view);
+                }
                 viewsCache.remove(pos);
+                if (stats != null) {
+                    stats.viewsReattached++;
+                }
+                if (getDecoratedLeft(view) != left || getDecoratedTop(view) != top
+                        || getDecoratedRight(view) != left + width
+                        || getDecoratedBottom(view) != top + height) {
+                    // view was shifted by adapter updates
+                    if (getDecoratedRight(view) - getDecoratedLeft(view) != width
+                            || getDecoratedBottom(view) - getDecoratedTop(view) != height) {
+                        measureChildIfNeeded(view, width, height);
+                    }
+                    layoutDecorated(view, left, top, left + width, top + height);
+                }
             }
-            pos++;
-            // check if we have reached the end of the row
-            if (++currentIndex == count) {
-                count = childCountForRow(++currentRow);
-                currentIndex = 0;
-                top += childSize + childMarginVertical;
-                leftOffset = getChildLeftOffset(count, currentIndex);
-            } else {
-                leftOffset += childSize + childMarginHorizontal;
+            left += width + geometry.getMarginHorizontal();
+        }
+        return end - start;
+    }
+
+    /**
+     * Measures child view, if it was not measured for the {@code width} and {@code height} yet, or
+     * requested layout (e.g. after rebinding with new content).
+     *
+     * @param view   child view
+     * @param width  child width
+     * @param height child height
+     */
+    private void measureChildIfNeeded(View view, int width, int height) {
+        if (!view.isLayoutRequested() && view.getMeasuredWidth() == width
+                && view.getMeasuredHeight() == height) {
+            // view was reused with unchanged content and size
+            return;
+        }
+        int childSize = geometry.getChildSize();
+        int widthSpec;
+        int heightSpec;
+        if (height == childSize) {
+            widthSpec = width == childSize ? childSizeSpec :
+                    View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+            heightSpec = childSizeSpec;
+        } else {
+            // section header
+            widthSpec = headerWidthSpec;
+            heightSpec = headerHeightSpec;
+        }
+        view.measure(widthSpec, heightSpec);
+        if (stats != null) {
+            stats.measures++;
+        }
+    }
+
+    /**
+     * Moves anchor by scroll distance and finds the new anchor using rows geometry: first view of the
+     * first row with maximum visible height. Without {@link SpanSizeLookup}, this is the same view
+     * as {@link #getAnchorView()} would find, since all views have the same size.
+     *
+     * @param dy        scroll distance
+     * @param itemCount items count
+     */
+    private void offsetAnchor(int dy, int itemCount) {
+        int height = getHeight();
+        int row = rowForPosition(anchorViewPosition);
+        int top = anchorRowTop - dy;
+        // find the first row, which is at least partially visible
+        while (top + geometry.getRowSize(row) <= 0 && firstPositionInRow(row + 1) < itemCount) {
+            top += geometry.getRowHeight(row);
+            row++;
+        }
+        while (row > 0 && top - geometry.getRowHeight(row - 1) + geometry.getRowSize(row - 1) > 0) {
+            row--;
+            top -= geometry.getRowHeight(row);
+        }
+        int anchorRow = row;
+        int anchorTop = top;
+        int maxVisible = 0;
+        while (top < height && firstPositionInRow(row) < itemCount) {
+            int size = geometry.getRowSize(row);
+            int visible = Math.min(top + size, height) - Math.max(top, 0);
+            if (visible > maxVisible) {
+                anchorRow = row;
+                anchorTop = top;
+                maxVisible = visible;
+                if (visible == size) {
+                    // row is entirely visible
+                    break;
+                }
             }
+            top += geometry.getRowHeight(row);
+            row++;
         }
+        anchorViewPosition = firstPositionInRow(anchorRow);
+        anchorRowTop = anchorTop;
+        anchorViewOffset = anchorTop - getPaddingTop();
     }
 
     /**
@@ -449,64 +1248,158 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
      * @return left offset, includes padding
      */
     private int getChildLeftOffset(int count, int index) {
-        return getPaddingLeft() + centerOffset(count) +
-                (childSize + childMarginHorizontal) * index;
+        return getPaddingLeft() + geometry.getChildLeft(count, index);
     }
 
     /**
-     * Calculate lateral offset to center the views within row.
-     *
-     * @param count maximum children count in row
-     * @return offset
+     * @param pos adapter position
+     * @return row number of the child at {@code pos}
+     */
+    private int rowForPosition(int pos) {
+        return geometry.rowForPosition(pos, getItemCount());
+    }
+
+    /**
+     * @param row row number
+     * @return adapter position of the first child in the {@code row}
      */
-    private int centerOffset(int count) {
-        return (availableWidth - childSize * count -
-                childMarginHorizontal * (count - 1)) / 2;
+    private int firstPositionInRow(int row) {
+        return geometry.firstPositionInRow(row, getItemCount());
     }
 
     /**
-     * @param row row to get child count for
-     * @return max child count of the row
+     * Invalidates rows, which follow the row containing {@code pos}, in span rows cache. Section
+     * headers are read again on the next layout, since their positions could change.
+     *
+     * @param pos first changed adapter position
      */
-    private int childCountForRow(int row) {
-        return columnCounts[row % columnCounts.length];
+    private void invalidateRowsFrom(int pos) {
+        adapterUpdated = true;
+        if (geometry.invalidateSpanRowsFrom(pos) || sectionLookup != null) {
+            // rows count could change
+            geometryValid = false;
+        }
     }
 
     /**
-     * Computes child position for child view at {@code position}. The result is written to array of
-     * 2 integers.
+     * Computes top offset of the {@code row} in the layout, when it is used as anchor row.
      *
-     * @param pos     child position within adapter
-     * @param offsets array of size 2, in which computed values will be written (left offset at 0 and
-     *                top offset at 1)
+     * @param row row number
+     * @return top offset, includes padding
      */
-    private void computeChildOffsets(int pos, @NonNull int[] offsets) {
-        int row = rowsByPos.get(pos);
-        offsets[0] = getChildLeftOffset(childCountForRow(row), indexInRow.get(pos));
+    private int computeChildTop(int row) {
         int availableheight = getHeight() - getPaddingTop() - getPaddingBottom();
         // anbchor point - top of the current view at 'pos'
         // top virtual space of all rows above current
-        int topVirtualSpace = (row == 0) ? 0 : ((childSize + childMarginVertical) * row);
+        int topVirtualSpace = (row == 0) ? 0 : geometry.getRowTop(row);
         if (childHeightTotal < availableheight) {
             // all views fit available space
-            offsets[1] = getPaddingTop() + topVirtualSpace;
-            return;
+            return getPaddingTop() + topVirtualSpace;
         }
         // bottom virtual space of all rows below current (including current)
         int bottomVirtualSpace = childHeightTotal - topVirtualSpace;
         if (bottomVirtualSpace >= availableheight) {
             // height of the views below current >= overall views height (including margins)
             // just align top of the view at 'pos' to top parent margin
-            offsets[1] = getPaddingTop();
+            return getPaddingTop();
         } else {
             // otherwise we need to align bottom of the last row with parent bottom margin
-            offsets[1] = Math.max(getPaddingTop(), getHeight() - getPaddingBottom() - bottomVirtualSpace);
+            return Math.max(getPaddingTop(), getHeight() - getPaddingBottom() - bottomVirtualSpace);
         }
     }
 
     @Override
     public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
         removeAllViews();
+        pendingFullLayout = true;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Adapter updates
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        saveAnchorId(recyclerView);
+        adapterUpdated = true;
+        pendingFullLayout = true;
+        geometry.invalidateSpanRows();
+        // rows count could change
+        geometryValid = false;
+    }
+
+    /**
+     * Saves stable id of the anchor item, if adapter implements {@link StableIdLookup}, so the
+     * anchor could be found after the dataset change.
+     *
+     * @param recyclerView RecyclerView
+     */
+    private void saveAnchorId(RecyclerView recyclerView) {
+        pendingAnchorId = RecyclerView.NO_ID;
+        pendingAnchorLookup = null;
+        RecyclerView.Adapter adapter = recyclerView.getAdapter();
+        if (!(adapter instanceof StableIdLookup) || !adapter.hasStableIds()) {
+            return;
+        }
+        // views are still attached at their positions before the change
+        for (int i = 0, c = getChildCount(); i < c; i++) {
+            View child = getChildAt(i);
+            if (getPosition(child) == anchorViewPosition) {
+                pendingAnchorId = recyclerView.getChildItemId(child);
+                pendingAnchorLookup = (StableIdLookup) adapter;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves anchor to the new position of the item, saved by {@link #saveAnchorId(RecyclerView)}.
+     * If the item was removed, anchor position is kept.
+     */
+    private void restoreAnchorById() {
+        int pos = pendingAnchorLookup.getPositionForId(pendingAnchorId);
+        if (pos != RecyclerView.NO_POSITION && pos < getItemCount()) {
+            anchorViewPosition = pos;
+        }
+        pendingAnchorId = RecyclerView.NO_ID;
+        pendingAnchorLookup = null;
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        invalidateRowsFrom(positionStart);
+        if (positionStart <= anchorViewPosition) {
+            anchorViewPosition += itemCount;
+        }
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        invalidateRowsFrom(positionStart);
+        if (positionStart + itemCount <= anchorViewPosition) {
+            anchorViewPosition -= itemCount;
+        } else if (positionStart <= anchorViewPosition) {
+            // anchor view was removed
+            anchorViewPosition = positionStart;
+        }
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        // span sizes of updated items could change
+        invalidateRowsFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        invalidateRowsFrom(Math.min(from, to));
+        if (from == anchorViewPosition) {
+            anchorViewPosition = to;
+        } else if (from < anchorViewPosition && to >= anchorViewPosition) {
+            anchorViewPosition--;
+        } else if (from > anchorViewPosition && to <= anchorViewPosition) {
+            anchorViewPosition++;
+        }
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -520,12 +1413,22 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
 
     @Override
     public void scrollToPosition(int position) {
+        scrollToPositionWithOffset(position, 0);
+    }
+
+    /**
+     * Scrolls to the {@code position}, so the top of its row will be at the {@code offset} from the
+     * top padding. Views, which are currently attached, will be reused for the new positions.
+     *
+     * @param position adapter position
+     * @param offset   distance between the top padding and the top of the row
+     */
+    public void scrollToPositionWithOffset(int position, int offset) {
         if (position >= getItemCount()) {
             position = 0;
         }
-        removeAllViews();
         anchorViewPosition = position;
-        anchorViewOffset = 0;
+        anchorViewOffset = offset;
         requestLayout();
     }
 
@@ -540,15 +1443,32 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
 
     @Override
     public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        Trace.beginSection(TRACE_SCROLL);
+        int scrolled = scrollBy(dy, recycler, state);
+        Trace.endSection();
+        if (stats != null) {
+            stats.scrollPasses++;
+            onStatsPassFinished();
+        }
+        return scrolled;
+    }
+
+    private int scrollBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
         if (getChildCount() == 0) {
             return 0;
         }
 
         // check if all views are fit into the parent
-        if (childHeightTotal <= getHeight() - getPaddingTop() - getPaddingBottom()) {
+        int availableHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (childHeightTotal <= availableHeight) {
             return 0;
         }
 
+        if (Math.abs(dy) > availableHeight) {
+            // none of the current views will stay visible (e.g. fast scroller drag)
+            return jumpBy(dy, recycler, state);
+        }
+
         int delta = 0;
         if (dy < 0) {
             // scrolling towards begining of list
@@ -573,13 +1493,248 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
         if (delta != 0) {
             // scroll children
             offsetChildrenVertical(-delta);
-            // if scroll position changed, perhaps we need to fill layout
-            fill(recycler);
+            // views, which are still visible, stay attached, only rows at the edges are changed
+            recycleInvisibleRows(recycler);
+            fillEdges(recycler, state);
+            offsetAnchor(delta, state.getItemCount());
         }
 
         return delta;
     }
 
+    /**
+     * Scrolls the layout by {@code dy} by laying out the target row directly, without walking
+     * through the rows in between.
+     *
+     * @param dy       scroll distance
+     * @param recycler recycler
+     * @param state    state
+     * @return actual scrolled distance
+     */
+    private int jumpBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        int offset = getScrollOffset();
+        int maxOffset = childHeightTotal - (getHeight() - getPaddingTop() - getPaddingBottom());
+        int target = Math.max(0, Math.min(maxOffset, offset + dy));
+        int row = geometry.rowAtOffset(target);
+        anchorViewPosition = firstPositionInRow(row);
+        anchorViewOffset = geometry.getRowTop(row) - target;
+        if (stats != null) {
+            stats.viewsRecycled += getChildCount();
+        }
+        removeAndRecycleAllViews(recycler);
+        fill(recycler, state, null);
+        return target - offset;
+    }
+
+    /**
+     * @return distance between the top of the first row and the top of the visible area
+     */
+    private int getScrollOffset() {
+        int row = rowForPosition(anchorViewPosition);
+        return geometry.getRowTop(row) - (anchorRowTop - getPaddingTop());
+    }
+
+    /**
+     * @param position adapter position
+     * @return distance between the top of the visible area and the top of the row containing
+     * {@code position}
+     */
+    private int computeScrollDistance(int position) {
+        return geometry.getRowTop(rowForPosition(position)) - getScrollOffset();
+    }
+
+    /**
+     * @param targetPosition target position of smooth scroll
+     * @return position of the row, which is {@link #SMOOTH_SCROLL_JUMP_SCREENS} screens away from
+     * the {@code targetPosition}, or {@link RecyclerView#NO_POSITION}, if target is closer
+     */
+    private int computeSmoothScrollJumpPosition(int targetPosition) {
+        if (getChildCount() == 0 || targetPosition >= getItemCount()) {
+            return RecyclerView.NO_POSITION;
+        }
+        int distance = computeScrollDistance(targetPosition);
+        int maxDistance = SMOOTH_SCROLL_JUMP_SCREENS * (getHeight() - getPaddingTop() - getPaddingBottom());
+        if (Math.abs(distance) <= maxDistance) {
+            return RecyclerView.NO_POSITION;
+        }
+        int targetTop = geometry.getRowTop(rowForPosition(targetPosition));
+        int jumpRow = geometry.rowAtOffset(distance > 0 ? targetTop - maxDistance : targetTop + maxDistance);
+        jumpRow = Math.min(rowsCount - 1, jumpRow);
+        return firstPositionInRow(jumpRow);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Hit testing
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Finds adapter position of the child under the point using grid geometry, without iterating
+     * over children. Margins between children are not considered as part of any child. Transient
+     * view translations (e.g. item animations) are ignored.
+     *
+     * @param x x coordinate relative to the parent
+     * @param y y coordinate relative to the parent
+     * @return position of the child under the point, or {@link RecyclerView#NO_POSITION}, if there
+     * is no child
+     */
+    public int findPositionAt(float x, float y) {
+        int itemCount = getItemCount();
+        if (getChildCount() == 0 || itemCount == 0) {
+            return RecyclerView.NO_POSITION;
+        }
+        int offset = geometry.getRowTop(rowForPosition(anchorViewPosition))
+                + (int) Math.floor(y) - anchorRowTop;
+        if (offset < 0) {
+            return RecyclerView.NO_POSITION;
+        }
+        int row = geometry.rowAtOffset(offset);
+        if (offset - geometry.getRowTop(row) >= geometry.getRowSize(row)) {
+            // vertical margin between rows
+            return RecyclerView.NO_POSITION;
+        }
+        int pos = geometry.findPositionInRow(row, (int) Math.floor(x) - getPaddingLeft(), itemCount);
+        return pos == GridGeometry.NO_POSITION ? RecyclerView.NO_POSITION : pos;
+    }
+
+    /**
+     * Finds child view under the point using grid geometry.
+     *
+     * @param x x coordinate relative to the parent
+     * @param y y coordinate relative to the parent
+     * @return child view under the point, or {@code null}, if there is no child
+     * @see #findPositionAt(float, float)
+     */
+    @Nullable
+    public View findViewAt(float x, float y) {
+        int pos = findPositionAt(x, y);
+        if (pos == RecyclerView.NO_POSITION) {
+            return null;
+        }
+        return findViewByPosition(pos);
+    }
+
+    @Override
+    public View findViewByPosition(int position) {
+        int childCount = getChildCount();
+        if (childCount > 0 && (recyclerView == null || !recyclerView.isAnimating())) {
+            // children are laid out in adapter order, so child can be found by its offset from the
+            // first one, unless disappearing views are appended by item animations
+            int index = position - getPosition(getChildAt(0));
+            if (index >= 0 && index < childCount) {
+                View child = getChildAt(index);
+                RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+                if (getPosition(child) == position && !lp.isItemRemoved()) {
+                    return child;
+                }
+            }
+        }
+        // removed views are only valid in pre-layout, which is checked by the default implementation
+        return super.findViewByPosition(position);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Scroll bars
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        return getScrollOffset();
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        return getHeight() - getPaddingTop() - getPaddingBottom();
+    }
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        return childHeightTotal;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Prefetch
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void onScrollStateChanged(int state) {
+        scrollState = state;
+    }
+
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+            LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        if (getChildCount() == 0 || dy == 0) {
+            return;
+        }
+        int rows = 1;
+        if (scrollState == RecyclerView.SCROLL_STATE_SETTLING) {
+            rows += flingPrefetchRows;
+        }
+        int itemCount = state.getItemCount();
+        int row;
+        int distance;
+        if (dy > 0) {
+            View bottomView = getChildAt(getChildCount() - 1);
+            row = rowForPosition(getPosition(bottomView));
+            distance = getDecoratedBottom(bottomView) - (getHeight() - getPaddingBottom());
+        } else {
+            View topView = getChildAt(0);
+            row = rowForPosition(getPosition(topView));
+            distance = getPaddingTop() - getDecoratedTop(topView);
+        }
+        distance = Math.max(0, distance);
+        int step = dy > 0 ? 1 : -1;
+        for (int i = 0; i < rows; i++) {
+            row += step;
+            if (row < 0) {
+                return;
+            }
+            int pos = firstPositionInRow(row);
+            if (pos >= itemCount) {
+                return;
+            }
+            int end = Math.min(itemCount, firstPositionInRow(row + 1));
+            for (; pos < end; pos++) {
+                layoutPrefetchRegistry.addPosition(pos, distance);
+            }
+            distance += geometry.getRowHeight(row);
+        }
+    }
+
+    @Override
+    public void collectInitialPrefetchPositions(int adapterItemCount,
+            LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        if (adapterItemCount == 0) {
+            return;
+        }
+        int startRow = anchorViewPosition < adapterItemCount ? rowForPosition(anchorViewPosition) : 0;
+        int start = firstPositionInRow(startRow);
+        int count = initialPrefetchItemCount;
+        if (count == 0) {
+            // layout may not be measured yet, prefetch at least a single row
+            int endRow = startRow + 1;
+            int availableHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+            if (geometry.getRowHeight() > 0 && availableHeight > 0) {
+                // a row can be partially visible at both edges
+                int lastRow = geometry.rowAtOffset(geometry.getRowTop(startRow) + availableHeight);
+                endRow = Math.max(endRow, lastRow + 2);
+            }
+            count = firstPositionInRow(endRow) - start;
+        }
+        for (int pos = start, end = Math.min(adapterItemCount, start + count); pos < end; pos++) {
+            layoutPrefetchRegistry.addPosition(pos, 0);
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Save/restore state
     ///////////////////////////////////////////////////////////////////////////
@@ -637,13 +1792,278 @@ public class StrangeGridLayoutManager extends RecyclerView.LayoutManager {
         }
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Recycled views
+    ///////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void onAttachedToWindow(RecyclerView view) {
+        super.onAttachedToWindow(view);
+        recyclerView = view;
+        if (minViewCacheSize != DEFAULT_VIEW_CACHE_SIZE) {
+            applyViewCacheSize();
+        }
+    }
+
+    @Override
+    public void onDetachedFromWindow(RecyclerView view, RecyclerView.Recycler recycler) {
+        super.onDetachedFromWindow(view, recycler);
+        recyclerView = null;
+        sizedPool = null;
+        sizedViewTypes.clear();
+        appliedViewCacheSize = -1;
+    }
+
+    /**
+     * Pool, which could be sized by layout managers and shared between several grids. Unlike
+     * regular pool, it remembers max counts of views, so layout managers only increase them, and it
+     * fits the grid with the largest rows and never gets less than sizes set by the app.
+     */
+    public static class SharedRecycledViewPool extends RecyclerView.RecycledViewPool {
+        private final SparseIntArray maxSizes = new SparseIntArray();
+
+        @Override
+        public void setMaxRecycledViews(int viewType, int max) {
+            maxSizes.put(viewType, max);
+            super.setMaxRecycledViews(viewType, max);
+        }
+
+        /**
+         * Sets max count of the recycled views of the {@code viewType}, if it is greater than the
+         * current one.
+         *
+         * @param viewType view type
+         * @param max      max count of views
+         */
+        public void growMaxRecycledViews(int viewType, int max) {
+            if (getMaxRecycledViews(viewType) < max) {
+                setMaxRecycledViews(viewType, max);
+            }
+        }
+
+        /**
+         * @param viewType view type
+         * @return max count of the recycled views of the {@code viewType}
+         */
+        public int getMaxRecycledViews(int viewType) {
+            return maxSizes.get(viewType, DEFAULT_MAX_RECYCLED_VIEWS);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Layout stats
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Schedules delivery of the stats, collected during the current frame.
+     */
+    private void onStatsPassFinished() {
+        if (!statsFrameCallbackPosted) {
+            statsFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(statsFrameCallback);
+        }
+    }
+
+    /**
+     * Aggregated stats of layout and scroll passes of a single frame. The instance is reused, so
+     * values should be copied, if they are needed after
+     * {@link OnLayoutStatsListener#onLayoutStats(LayoutStats)} returns.
+     */
+    public static class LayoutStats {
+        private int layoutPasses;
+        private int scrollPasses;
+        private int viewsObtained;
+        private int viewsReattached;
+        private int viewsRecycled;
+        private int measures;
+        private long fillTimeNanos;
+        private long fillUpTimeNanos;
+        private long fillDownTimeNanos;
+
+        /**
+         * @return count of {@code onLayoutChildren} calls, including pre-layout passes
+         */
+        public int getLayoutPasses() {
+            return layoutPasses;
+        }
+
+        /**
+         * @return count of {@code scrollVerticallyBy} calls
+         */
+        public int getScrollPasses() {
+            return scrollPasses;
+        }
+
+        /**
+         * @return count of views obtained from the recycler (created or rebound)
+         */
+        public int getViewsObtained() {
+            return viewsObtained;
+        }
+
+        /**
+         * @return count of attached views, which were reused for the same positions
+         */
+        public int getViewsReattached() {
+            return viewsReattached;
+        }
+
+        /**
+         * @return count of views returned to the recycler
+         */
+        public int getViewsRecycled() {
+            return viewsRecycled;
+        }
+
+        /**
+         * @return count of child measure calls
+         */
+        public int getMeasures() {
+            return measures;
+        }
+
+        /**
+         * @return wall time spent in fill passes of layout and scrolling, includes
+         * {@link #getFillUpTimeNanos()} and {@link #getFillDownTimeNanos()}
+         */
+        public long getFillTimeNanos() {
+            return fillTimeNanos;
+        }
+
+        /**
+         * @return wall time spent filling rows above the anchor or the first attached row
+         */
+        public long getFillUpTimeNanos() {
+            return fillUpTimeNanos;
+        }
+
+        /**
+         * @return wall time spent filling rows below the anchor or the last attached row
+         */
+        public long getFillDownTimeNanos() {
+            return fillDownTimeNanos;
+        }
+
+        void reset() {
+            layoutPasses = 0;
+            scrollPasses = 0;
+            viewsObtained = 0;
+            viewsReattached = 0;
+            viewsRecycled = 0;
+            measures = 0;
+            fillTimeNanos = 0;
+            fillUpTimeNanos = 0;
+            fillDownTimeNanos = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "LayoutStats{layoutPasses=" + layoutPasses +
+                    ", scrollPasses=" + scrollPasses +
+                    ", viewsObtained=" + viewsObtained +
+                    ", viewsReattached=" + viewsReattached +
+                    ", viewsRecycled=" + viewsRecycled +
+                    ", measures=" + measures +
+                    ", fillTimeNanos=" + fillTimeNanos +
+                    ", fillUpTimeNanos=" + fillUpTimeNanos +
+                    ", fillDownTimeNanos=" + fillDownTimeNanos +
+                    "}";
+        }
+    }
+
+    /**
+     * Receives layout stats, see {@link #setOnLayoutStatsListener(OnLayoutStatsListener)}.
+     */
+    public interface OnLayoutStatsListener {
+
+        /**
+         * @param stats stats of the last frame, valid only during this call
+         */
+        void onLayoutStats(LayoutStats stats);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Predictive animations
     ///////////////////////////////////////////////////////////////////////////
 
     @Override
     public boolean supportsPredictiveItemAnimations() {
-        return false;
+        return true;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Adaptive mode
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Column counts resolved for the specific width in adaptive mode.
+     */
+    private static class AdaptiveConfig {
+        final int width;
+        final ColumnPattern columnPattern;
+
+        AdaptiveConfig(int width, ColumnPattern columnPattern) {
+            this.width = width;
+            this.columnPattern = columnPattern;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Span size lookup
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Provides count of columns occupied by each child.
+     */
+    public static abstract class SpanSizeLookup implements GridGeometry.SpanSizeProvider {
+
+        /**
+         * @param position adapter position
+         * @return count of columns occupied by the child at {@code position}
+         */
+        @Override
+        public abstract int getSpanSize(int position);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Stable ids
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Could be implemented by adapters with stable ids. After
+     * {@link RecyclerView.Adapter#notifyDataSetChanged()}, the anchor item is found by its id, so it
+     * stays in place, even if it was moved to another position.
+     */
+    public interface StableIdLookup {
+
+        /**
+         * @param id stable id of the item
+         * @return adapter position of the item with {@code id}, or
+         * {@link RecyclerView#NO_POSITION}, if there is no such item
+         */
+        int getPositionForId(long id);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Section lookup
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Provides positions of the section headers. Positions must be in ascending order and must be
+     * consistent with the adapter's items.
+     */
+    public static abstract class SectionLookup {
+
+        /**
+         * @return count of sections with headers
+         */
+        public abstract int getSectionCount();
+
+        /**
+         * @param section section index
+         * @return adapter position of the header of the {@code section}
+         */
+        public abstract int getHeaderPosition(int section);
     }
 
     ///////////////////////////////////////////////////////////////////////////
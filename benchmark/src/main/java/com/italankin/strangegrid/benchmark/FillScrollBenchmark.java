@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid.benchmark;
+
+import com.italankin.strangegrid.GridGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated layout passes: filling the viewport at an arbitrary position and scrolling through the
+ * grid, as the layout manager does it, without views.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FillScrollBenchmark {
+
+    private static final int POSITIONS_MASK = 1023;
+    /**
+     * Scroll distance of a single frame
+     */
+    private static final int SCROLL_STEP = 48;
+    /**
+     * Count of frames in a scroll sequence
+     */
+    private static final int SCROLL_FRAMES = 100;
+
+    @Param({"1000", "100000", "10000000"})
+    public int itemCount;
+    @Param({"4", "3,4,5", Grids.IRREGULAR})
+    public String pattern;
+    @Param({Grids.SPANS_NONE, Grids.SPANS_EVERY_7TH})
+    public String spans;
+
+    private GridGeometry geometry;
+    private int[] positions;
+    private int index = 0;
+
+    /**
+     * Scroll state: anchor row, its top and the last laid out row
+     */
+    private int anchorRow;
+    private int anchorRowTop;
+    private int lastRow;
+
+    @Setup
+    public void setup() {
+        geometry = Grids.create(pattern, spans);
+        geometry.getRowsCount(itemCount);
+        positions = Grids.randomPositions(POSITIONS_MASK + 1, itemCount);
+        anchorRow = 0;
+        anchorRowTop = 0;
+        lastRow = -1;
+    }
+
+    /**
+     * Full fill of the viewport at random position, as after {@code scrollToPosition}.
+     */
+    @Benchmark
+    public int fillAtPosition(Blackhole blackhole) {
+        int pos = positions[index++ & POSITIONS_MASK];
+        int row = geometry.rowForPosition(pos, itemCount);
+        return fill(row, 0, blackhole);
+    }
+
+    /**
+     * Sequence of scroll frames, each frame moves the anchor and lays out rows, which became
+     * visible at the bottom edge. Restarts from the top, when the end is reached.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SCROLL_FRAMES)
+    public void scroll(Blackhole blackhole) {
+        int childSize = geometry.getChildSize();
+        int rowHeight = geometry.getRowHeight();
+        for (int i = 0; i < SCROLL_FRAMES; i++) {
+            anchorRowTop -= SCROLL_STEP;
+            while (anchorRowTop + childSize <= 0) {
+                anchorRow++;
+                anchorRowTop += rowHeight;
+            }
+            if (geometry.firstPositionInRow(anchorRow, itemCount) >= itemCount) {
+                anchorRow = 0;
+                anchorRowTop = 0;
+                lastRow = -1;
+            }
+            int row = lastRow < anchorRow ? anchorRow : lastRow + 1;
+            int top = anchorRowTop + (row - anchorRow) * rowHeight;
+            while (top <= Grids.HEIGHT && geometry.firstPositionInRow(row, itemCount) < itemCount) {
+                layoutRow(row, top, blackhole);
+                lastRow = row;
+                row++;
+                top += rowHeight;
+            }
+        }
+    }
+
+    /**
+     * Fills the viewport up and down from the anchor row.
+     *
+     * @return count of laid out children
+     */
+    private int fill(int startRow, int startTop, Blackhole blackhole) {
+        int childSize = geometry.getChildSize();
+        int rowHeight = geometry.getRowHeight();
+        int laidOut = 0;
+        for (int row = startRow - 1, top = startTop - rowHeight; row >= 0 && top + childSize > 0;
+                row--, top -= rowHeight) {
+            laidOut += layoutRow(row, top, blackhole);
+        }
+        for (int row = startRow, top = startTop;
+                top <= Grids.HEIGHT && geometry.firstPositionInRow(row, itemCount) < itemCount;
+                row++, top += rowHeight) {
+            laidOut += layoutRow(row, top, blackhole);
+        }
+        return laidOut;
+    }
+
+    /**
+     * Computes bounds of every child of the row.
+     *
+     * @return count of children in the row
+     */
+    private int layoutRow(int row, int top, Blackhole blackhole) {
+        int count = geometry.childCountForRow(row);
+        int left = geometry.getChildLeft(count, 0);
+        int start = geometry.firstPositionInRow(row, itemCount);
+        int end = Math.min(itemCount, geometry.firstPositionInRow(row + 1, itemCount));
+        for (int pos = start; pos < end; pos++) {
+            int width = geometry.getChildWidth(geometry.spanSizeInRow(row, pos, count));
+            blackhole.consume(left + width);
+            blackhole.consume(top);
+            left += width + geometry.getMarginHorizontal();
+        }
+        return end - start;
+    }
+
+}
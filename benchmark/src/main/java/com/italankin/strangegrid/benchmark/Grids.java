@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid.benchmark;
+
+import com.italankin.strangegrid.ColumnPattern;
+import com.italankin.strangegrid.GridGeometry;
+
+import java.util.Random;
+
+/**
+ * Grid configurations shared by benchmarks.
+ */
+final class Grids {
+
+    /**
+     * Viewport size of a typical phone
+     */
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 1920;
+    static final int MARGIN = 8;
+
+    /**
+     * Name of the long irregular column pattern
+     */
+    static final String IRREGULAR = "irregular";
+    /**
+     * Length of the {@link #IRREGULAR} pattern, prime, so it does not align with other cycles
+     */
+    private static final int IRREGULAR_LENGTH = 97;
+    private static final int IRREGULAR_MAX_COUNT = 8;
+
+    /**
+     * Name of the span mode, where every 7th item spans 2 columns
+     */
+    static final String SPANS_EVERY_7TH = "every7th";
+    static final String SPANS_NONE = "none";
+
+    private Grids() {
+    }
+
+    /**
+     * @param pattern comma separated column counts, or {@link #IRREGULAR}
+     * @param spans   {@link #SPANS_NONE} or {@link #SPANS_EVERY_7TH}
+     * @return geometry measured for the {@link #WIDTH}
+     */
+    static GridGeometry create(String pattern, String spans) {
+        GridGeometry geometry = new GridGeometry();
+        geometry.setColumnPattern(new ColumnPattern(parsePattern(pattern)));
+        geometry.setMargins(MARGIN, MARGIN);
+        if (SPANS_EVERY_7TH.equals(spans)) {
+            geometry.setSpanSizeProvider(new GridGeometry.SpanSizeProvider() {
+                @Override
+                public int getSpanSize(int position) {
+                    return position % 7 == 0 ? 2 : 1;
+                }
+            });
+        } else if (!SPANS_NONE.equals(spans)) {
+            throw new IllegalArgumentException("Unknown spans: " + spans);
+        }
+        geometry.setAvailableWidth(WIDTH);
+        return geometry;
+    }
+
+    private static int[] parsePattern(String pattern) {
+        if (IRREGULAR.equals(pattern)) {
+            Random random = new Random(IRREGULAR_LENGTH);
+            int[] counts = new int[IRREGULAR_LENGTH];
+            for (int i = 0; i < IRREGULAR_LENGTH; i++) {
+                counts[i] = 1 + random.nextInt(IRREGULAR_MAX_COUNT);
+            }
+            return counts;
+        }
+        String[] values = pattern.split(",");
+        int[] counts = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            counts[i] = Integer.parseInt(values[i].trim());
+        }
+        return counts;
+    }
+
+    /**
+     * @param count     count of positions
+     * @param itemCount items count
+     * @return random positions in range {@code [0, itemCount)}
+     */
+    static int[] randomPositions(int count, int itemCount) {
+        Random random = new Random(itemCount);
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = random.nextInt(itemCount);
+        }
+        return positions;
+    }
+
+}
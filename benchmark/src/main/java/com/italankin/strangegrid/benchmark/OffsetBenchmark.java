@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid.benchmark;
+
+import com.italankin.strangegrid.GridGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computing offsets of children within rows and hit testing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffsetBenchmark {
+
+    private static final int POSITIONS_MASK = 1023;
+
+    @Param({"1000", "100000", "10000000"})
+    public int itemCount;
+    @Param({"4", "3,4,5", Grids.IRREGULAR})
+    public String pattern;
+    @Param({Grids.SPANS_NONE, Grids.SPANS_EVERY_7TH})
+    public String spans;
+
+    private GridGeometry geometry;
+    private int[] positions;
+    private int[] rows;
+    private int[] xs;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        geometry = Grids.create(pattern, spans);
+        int rowsCount = geometry.getRowsCount(itemCount);
+        positions = Grids.randomPositions(POSITIONS_MASK + 1, itemCount);
+        rows = Grids.randomPositions(POSITIONS_MASK + 1, rowsCount);
+        xs = Grids.randomPositions(POSITIONS_MASK + 1, Grids.WIDTH);
+    }
+
+    /**
+     * Left offsets and widths of all children of a row.
+     */
+    @Benchmark
+    public void rowOffsets(Blackhole blackhole) {
+        int row = rows[index++ & POSITIONS_MASK];
+        int count = geometry.childCountForRow(row);
+        int left = geometry.getChildLeft(count, 0);
+        int end = Math.min(itemCount, geometry.firstPositionInRow(row + 1, itemCount));
+        for (int pos = geometry.firstPositionInRow(row, itemCount); pos < end; pos++) {
+            int width = geometry.getChildWidth(geometry.spanSizeInRow(row, pos, count));
+            blackhole.consume(left);
+            left += width + geometry.getMarginHorizontal();
+        }
+    }
+
+    /**
+     * Left offset of a single child, as for laying out a disappearing view.
+     */
+    @Benchmark
+    public int childLeft() {
+        int pos = positions[index++ & POSITIONS_MASK];
+        int row = geometry.rowForPosition(pos, itemCount);
+        int count = geometry.childCountForRow(row);
+        return geometry.getChildLeft(count, geometry.spanIndexInRow(row, pos, itemCount));
+    }
+
+    @Benchmark
+    public int findPositionInRow() {
+        int i = index++ & POSITIONS_MASK;
+        return geometry.findPositionInRow(rows[i], xs[i], itemCount);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid.benchmark;
+
+import com.italankin.strangegrid.GridGeometry;
+import com.italankin.strangegrid.SpanRowTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building rows info and resolving rows for positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowTableBenchmark {
+
+    private static final int POSITIONS_MASK = 1023;
+
+    @Param({"1000", "100000", "10000000"})
+    public int itemCount;
+    @Param({"4", "3,4,5", Grids.IRREGULAR})
+    public String pattern;
+    @Param({Grids.SPANS_NONE, Grids.SPANS_EVERY_7TH})
+    public String spans;
+
+    private GridGeometry geometry;
+    private int[] positions;
+    private int[] rows;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        geometry = Grids.create(pattern, spans);
+        int rowsCount = geometry.getRowsCount(itemCount);
+        positions = Grids.randomPositions(POSITIONS_MASK + 1, itemCount);
+        rows = Grids.randomPositions(POSITIONS_MASK + 1, rowsCount);
+    }
+
+    /**
+     * Rows count computation from scratch, as after data set change.
+     */
+    @Benchmark
+    public int buildRowTable() {
+        geometry.invalidateSpanRows();
+        return geometry.getRowsCount(itemCount);
+    }
+
+    /**
+     * Rows count computation after change at the middle of the data set.
+     */
+    @Benchmark
+    public int rebuildRowTableFromMiddle() {
+        geometry.invalidateSpanRowsFrom(itemCount / 2);
+        return geometry.getRowsCount(itemCount);
+    }
+
+    /**
+     * Complete table, as built on a background thread.
+     */
+    @Benchmark
+    public SpanRowTable buildCompleteTable() {
+        return SpanRowTable.build(geometry.getColumnPattern(), geometry.getSpanSizeProvider(), itemCount);
+    }
+
+    /**
+     * Partial rows around the middle of the data set, as used by the first layout pass, while the
+     * complete table is being built.
+     */
+    @Benchmark
+    public int partialRowsAtMiddle() {
+        geometry.invalidateSpanRows();
+        int pos = itemCount / 2;
+        geometry.beginPartialSpanRows(pos);
+        return geometry.rowForPosition(pos, itemCount) + geometry.getEstimatedRowsCount(itemCount);
+    }
+
+    @Benchmark
+    public int rowForPosition() {
+        return geometry.rowForPosition(positions[index++ & POSITIONS_MASK], itemCount);
+    }
+
+    @Benchmark
+    public int firstPositionInRow() {
+        return geometry.firstPositionInRow(rows[index++ & POSITIONS_MASK], itemCount);
+    }
+
+}
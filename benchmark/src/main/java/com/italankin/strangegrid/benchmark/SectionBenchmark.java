@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid.benchmark;
+
+import com.italankin.strangegrid.GridGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row and offset lookups of the grid with section headers, as used by scroll bars and jumps to
+ * positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SectionBenchmark {
+
+    private static final int POSITIONS_MASK = 1023;
+    private static final int HEADER_HEIGHT = 96;
+
+    @Param({"100000", "10000000"})
+    public int itemCount;
+    /**
+     * Average count of items in a section, including header
+     */
+    @Param({"20", "1000"})
+    public int sectionSize;
+    @Param({"4", Grids.IRREGULAR})
+    public String pattern;
+
+    private GridGeometry geometry;
+    private int[] headers;
+    private int headersCount;
+    private int[] positions;
+    private int[] rows;
+    private int[] offsets;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        geometry = Grids.create(pattern, Grids.SPANS_NONE);
+        // sections of random sizes from 1 to 2 * sectionSize - 1
+        Random random = new Random(sectionSize);
+        headers = new int[itemCount / sectionSize + 1];
+        for (int pos = 0; pos < itemCount; pos += 1 + random.nextInt(2 * sectionSize - 1)) {
+            if (headersCount == headers.length) {
+                headers = Arrays.copyOf(headers, headersCount * 2);
+            }
+            headers[headersCount++] = pos;
+        }
+        geometry.setSectionHeaders(headers, headersCount, HEADER_HEIGHT, itemCount);
+        int rowsCount = geometry.getRowsCount(itemCount);
+        positions = Grids.randomPositions(POSITIONS_MASK + 1, itemCount);
+        rows = Grids.randomPositions(POSITIONS_MASK + 1, rowsCount);
+        offsets = Grids.randomPositions(POSITIONS_MASK + 1, geometry.getContentHeight(rowsCount));
+    }
+
+    /**
+     * Indexing of the headers, done on each layout after adapter updates.
+     */
+    @Benchmark
+    public int buildIndex() {
+        geometry.setSectionHeaders(headers, headersCount, HEADER_HEIGHT, itemCount);
+        return geometry.getRowsCount(itemCount);
+    }
+
+    @Benchmark
+    public int rowForPosition() {
+        return geometry.rowForPosition(positions[index++ & POSITIONS_MASK], itemCount);
+    }
+
+    @Benchmark
+    public int firstPositionInRow() {
+        return geometry.firstPositionInRow(rows[index++ & POSITIONS_MASK], itemCount);
+    }
+
+    /**
+     * Scroll offset of a position, as computed for scroll bars and smooth scroll.
+     */
+    @Benchmark
+    public int positionTop() {
+        int pos = positions[index++ & POSITIONS_MASK];
+        return geometry.getRowTop(geometry.rowForPosition(pos, itemCount));
+    }
+
+    /**
+     * Position at a scroll offset, as computed for jumps (e.g. fast scroller drag).
+     */
+    @Benchmark
+    public int positionAtOffset() {
+        int row = geometry.rowAtOffset(offsets[index++ & POSITIONS_MASK]);
+        return geometry.firstPositionInRow(row, itemCount);
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sequence of column counts for each row. If there are more rows than specified in the
+ * sequence, it will be cycled.
+ */
+public final class ColumnPattern {
+
+    private final int[] counts;
+    /**
+     * Maximum number of children in single row
+     */
+    private final int maxCount;
+    /**
+     * Positions (relative to the beginning of the cycle) of the first child of each row in the
+     * cycle. The last element contains total children count of the cycle.
+     */
+    private final int[] cycleRowStarts;
+
+    /**
+     * @param counts array of ints, should not contain values < 1
+     */
+    public ColumnPattern(int[] counts) {
+        if (counts.length == 0) {
+            throw new IllegalArgumentException("Array must contain at least one value");
+        }
+        int max = 0;
+        int l = counts.length;
+        int[] starts = new int[l + 1];
+        for (int i = 0; i < l; i++) {
+            int v = counts[i];
+            if (v <= 0) {
+                throw new IllegalArgumentException(
+                        "Zero and negative numbers should not be passed as a column count (found at index: " + i + ")");
+            }
+            if (v > max) {
+                max = v;
+            }
+            starts[i + 1] = starts[i] + v;
+        }
+        this.counts = Arrays.copyOf(counts, l);
+        this.maxCount = max;
+        this.cycleRowStarts = starts;
+    }
+
+    /**
+     * @return maximum number of children in single row
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return count of rows in the cycle
+     */
+    public int getCycleLength() {
+        return counts.length;
+    }
+
+    /**
+     * @return count of children in the cycle
+     */
+    public int getCycleSize() {
+        return cycleRowStarts[counts.length];
+    }
+
+    /**
+     * @param row row number
+     * @return max child count of the row
+     */
+    public int childCountForRow(int row) {
+        return counts[row % counts.length];
+    }
+
+    /**
+     * @param pos adapter position
+     * @return row number of the child at {@code pos}, assuming every child occupies a single column
+     */
+    public int rowForPosition(int pos) {
+        int l = counts.length;
+        int cycleSize = cycleRowStarts[l];
+        // find the last row of the cycle which starts at or before pos
+        int index = GridGeometry.floorIndex(cycleRowStarts, l, pos % cycleSize);
+        return (pos / cycleSize) * l + index;
+    }
+
+    /**
+     * @param row row number
+     * @return adapter position of the first child in the {@code row}, assuming every child
+     * occupies a single column
+     */
+    public int firstPositionInRow(int row) {
+        int l = counts.length;
+        return (row / l) * cycleRowStarts[l] + cycleRowStarts[row % l];
+    }
+
+    /**
+     * @return copy of column counts
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || o instanceof ColumnPattern && Arrays.equals(counts, ((ColumnPattern) o).counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(counts);
+    }
+
+}
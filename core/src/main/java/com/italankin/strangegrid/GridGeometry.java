@@ -0,0 +1,827 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import java.util.Arrays;
+
+/**
+ * Geometry of the grid: rows, child sizes and offsets. Does not depend on Android, all offsets are
+ * relative to the top left corner of the content area (i.e. do not include paddings).
+ */
+public class GridGeometry {
+
+    public static final int NO_POSITION = -1;
+
+    /**
+     * Column count, used until a pattern is set
+     */
+    private static final int DEFAULT_COLUMN_COUNT = 3;
+    /**
+     * Minimum count of rows, computed before the position, around which partial span rows are
+     * started
+     */
+    private static final int PARTIAL_ROWS_BEFORE = 8;
+
+    private ColumnPattern columnPattern = new ColumnPattern(new int[]{DEFAULT_COLUMN_COUNT});
+    /**
+     * Additional horizontal margin between children
+     */
+    private int marginHorizontal = 0;
+    /**
+     * Additional vertical margin between children
+     */
+    private int marginVertical = 0;
+    /**
+     * Provider of span sizes of children, if {@code null}, every child occupies a single column
+     */
+    private SpanSizeProvider spanSizeProvider;
+    /**
+     * Cache of adapter positions of the first child of each row, used if {@link #spanSizeProvider}
+     * is set. Rows are computed on demand, only the first {@link #spanRowStartsCount} values are
+     * valid.
+     */
+    private int[] spanRowStarts = new int[16];
+    private int spanRowStartsCount = 1;
+    /**
+     * Row number of the first element of {@link #spanRowStarts}. Non-zero, if rows are a partial
+     * result, started at an arbitrary position (see {@link #beginPartialSpanRows(int)}), rows
+     * before it are estimated.
+     */
+    private int spanRowsBaseRow = 0;
+    /**
+     * Incremented, whenever span rows become invalid
+     */
+    private int spanRowsVersion = 0;
+    /**
+     * Rows count and items count of the last published span rows, used to estimate rows count,
+     * while rows are rebuilt after items change, items count is 0, if unknown
+     */
+    private int publishedRowsCount = 0;
+    private int publishedItemCount = 0;
+    /**
+     * Adapter positions of the section headers and row numbers of them, sorted. Only the first
+     * {@link #sectionsCount} values are valid. Each header occupies an entire row and the column
+     * pattern starts over in the row after it.
+     */
+    private int[] sectionHeaderPositions = new int[0];
+    private int[] sectionHeaderRows = new int[0];
+    private int sectionsCount = 0;
+    /**
+     * Height of the section header rows
+     */
+    private int headerHeight = 0;
+    /**
+     * Amount of horizontal space available to children
+     */
+    private int availableWidth = 0;
+    /**
+     * Child size (every child is a square)
+     */
+    private int childSize = 0;
+
+    /**
+     * Sets column counts. Cached rows of the {@link SpanSizeProvider} will be invalidated.
+     *
+     * @param pattern column pattern
+     */
+    public void setColumnPattern(ColumnPattern pattern) {
+        columnPattern = pattern;
+        invalidateSpanRows();
+        publishedItemCount = 0;
+        updateChildSize();
+        updateSectionHeaderRows();
+    }
+
+    public ColumnPattern getColumnPattern() {
+        return columnPattern;
+    }
+
+    /**
+     * @return maximum number of children in single row
+     */
+    public int getMaxCount() {
+        return columnPattern.getMaxCount();
+    }
+
+    /**
+     * @param horizontal horizontal margin, must be >= 0
+     * @param vertical   vertical margin, must be >= 0
+     */
+    public void setMargins(int horizontal, int vertical) {
+        marginHorizontal = horizontal;
+        marginVertical = vertical;
+        updateChildSize();
+    }
+
+    public int getMarginHorizontal() {
+        return marginHorizontal;
+    }
+
+    public int getMarginVertical() {
+        return marginVertical;
+    }
+
+    /**
+     * @param provider span size provider, {@code null} to make every child occupy a single column
+     */
+    public void setSpanSizeProvider(SpanSizeProvider provider) {
+        if (provider != null && sectionsCount > 0) {
+            throw new IllegalStateException("Span sizes are not supported with section headers");
+        }
+        spanSizeProvider = provider;
+        invalidateSpanRows();
+        publishedItemCount = 0;
+    }
+
+    public SpanSizeProvider getSpanSizeProvider() {
+        return spanSizeProvider;
+    }
+
+    /**
+     * Sets amount of horizontal space available to children and computes child size.
+     *
+     * @param width available width
+     */
+    public void setAvailableWidth(int width) {
+        availableWidth = width;
+        updateChildSize();
+    }
+
+    public int getAvailableWidth() {
+        return availableWidth;
+    }
+
+    public int getChildSize() {
+        return childSize;
+    }
+
+    /**
+     * @return distance between tops of the adjacent rows of children
+     */
+    public int getRowHeight() {
+        return childSize + marginVertical;
+    }
+
+    /**
+     * @param row row number
+     * @return distance between tops of the {@code row} and the next one
+     */
+    public int getRowHeight(int row) {
+        return getRowSize(row) + marginVertical;
+    }
+
+    /**
+     * @param row row number
+     * @return height of the {@code row} without vertical margin
+     */
+    public int getRowSize(int row) {
+        return isHeaderRow(row) ? headerHeight : childSize;
+    }
+
+    /**
+     * @param row row number
+     * @return top offset of the {@code row}
+     */
+    public int getRowTop(int row) {
+        int top = row * getRowHeight();
+        if (sectionsCount > 0) {
+            // header rows above have their own height
+            top += (sectionAt(sectionHeaderRows, row - 1) + 1) * (headerHeight - childSize);
+        }
+        return top;
+    }
+
+    /**
+     * @param offset top offset
+     * @return number of the row, which contains {@code offset} or the margin below it, rows
+     * beyond the last one are not considered
+     */
+    public int rowAtOffset(int offset) {
+        int rowHeight = getRowHeight();
+        if (rowHeight <= 0 || offset <= 0) {
+            return 0;
+        }
+        // find the last header, which starts at or before the offset
+        int lo = -1;
+        int hi = sectionsCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (getHeaderTop(mid) <= offset) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (lo < 0) {
+            return offset / rowHeight;
+        }
+        int bodyTop = getHeaderTop(lo) + headerHeight + marginVertical;
+        if (offset < bodyTop) {
+            return sectionHeaderRows[lo];
+        }
+        return sectionHeaderRows[lo] + 1 + (offset - bodyTop) / rowHeight;
+    }
+
+    /**
+     * @param section section index
+     * @return top offset of the header of the {@code section}
+     */
+    private int getHeaderTop(int section) {
+        return sectionHeaderRows[section] * getRowHeight() + section * (headerHeight - childSize);
+    }
+
+    private void updateChildSize() {
+        int maxCount = columnPattern.getMaxCount();
+        childSize = (availableWidth - marginHorizontal * (maxCount - 1)) / maxCount;
+    }
+
+    /**
+     * @param itemCount items count
+     * @return total rows count, at least 1
+     */
+    public int getRowsCount(int itemCount) {
+        return rowForPosition(Math.max(0, itemCount - 1), itemCount) + 1;
+    }
+
+    /**
+     * @param rowsCount rows count
+     * @return total height of the rows with vertical margins
+     */
+    public int getContentHeight(int rowsCount) {
+        return getRowTop(rowsCount) - marginVertical;
+    }
+
+    /**
+     * @param row row to get child count for
+     * @return max child count of the row, 1 for header rows
+     */
+    public int childCountForRow(int row) {
+        if (sectionsCount == 0) {
+            return columnPattern.childCountForRow(row);
+        }
+        int section = sectionAt(sectionHeaderRows, row);
+        if (section < 0) {
+            return columnPattern.childCountForRow(row);
+        }
+        int headerRow = sectionHeaderRows[section];
+        return row == headerRow ? 1 : columnPattern.childCountForRow(row - headerRow - 1);
+    }
+
+    /**
+     * Calculate lateral offset to center the children within row.
+     *
+     * @param count maximum children count in row
+     * @return offset
+     */
+    public int centerOffset(int count) {
+        return (availableWidth - childSize * count - marginHorizontal * (count - 1)) / 2;
+    }
+
+    /**
+     * Calculate left offset for child at column index within row.
+     *
+     * @param count maximum children count in row
+     * @param index column index within row
+     * @return left offset
+     */
+    public int getChildLeft(int count, int index) {
+        return centerOffset(count) + (childSize + marginHorizontal) * index;
+    }
+
+    /**
+     * @param span span size
+     * @return width of the child with {@code span} size
+     */
+    public int getChildWidth(int span) {
+        return childSize * span + marginHorizontal * (span - 1);
+    }
+
+    /**
+     * @param pos   adapter position
+     * @param count column count of the row
+     * @return span size of the child at {@code pos}, clamped to the {@code count}
+     */
+    public int spanSize(int pos, int count) {
+        if (spanSizeProvider == null) {
+            return 1;
+        }
+        return Math.max(1, Math.min(count, spanSizeProvider.getSpanSize(pos)));
+    }
+
+    /**
+     * @param row   row number
+     * @param pos   adapter position of the child within the {@code row}
+     * @param count column count of the row
+     * @return span size of the child at {@code pos}, as it is laid out in the {@code row}: children
+     * of the estimated rows (see {@link #isEstimatedRow(int)}) occupy a single column each
+     */
+    public int spanSizeInRow(int row, int pos, int count) {
+        return isEstimatedRow(row) ? 1 : spanSize(pos, count);
+    }
+
+    /**
+     * @param row row number
+     * @return {@code true}, if the {@code row} is before the partial span rows, so its children
+     * are estimated from the column pattern only
+     */
+    public boolean isEstimatedRow(int row) {
+        return spanSizeProvider != null && row < spanRowsBaseRow;
+    }
+
+    /**
+     * @param pos       adapter position
+     * @param itemCount items count
+     * @return row number of the child at {@code pos}
+     */
+    public int rowForPosition(int pos, int itemCount) {
+        if (sectionsCount > 0) {
+            return sectionRowForPosition(pos);
+        }
+        if (spanSizeProvider == null) {
+            return columnPattern.rowForPosition(pos);
+        }
+        int first = spanRowStarts[0];
+        if (pos < first) {
+            // row is before partial rows, rows of the column pattern are aligned to them
+            return columnPattern.rowForPosition(pos + getEstimatedRowsShift());
+        }
+        while (spanRowStarts[spanRowStartsCount - 1] <= pos && appendSpanRow(itemCount)) {
+            // compute rows until the row next to pos
+        }
+        return spanRowsBaseRow + floorIndex(spanRowStarts, spanRowStartsCount, pos);
+    }
+
+    /**
+     * @param row       row number
+     * @param itemCount items count
+     * @return adapter position of the first child in the {@code row}, or {@code itemCount}, if the
+     * row is beyond the last one
+     */
+    public int firstPositionInRow(int row, int itemCount) {
+        if (sectionsCount > 0) {
+            return sectionFirstPositionInRow(row, itemCount);
+        }
+        if (spanSizeProvider == null) {
+            return columnPattern.firstPositionInRow(row);
+        }
+        int index = row - spanRowsBaseRow;
+        if (index < 0) {
+            // row is before partial rows, the first row may be incomplete
+            return Math.max(0, columnPattern.firstPositionInRow(row) - getEstimatedRowsShift());
+        }
+        while (spanRowStartsCount <= index && appendSpanRow(itemCount)) {
+            // compute rows until the requested one
+        }
+        return index < spanRowStartsCount ? spanRowStarts[index] : itemCount;
+    }
+
+    /**
+     * @param row       row number
+     * @param pos       adapter position of the child within the {@code row}
+     * @param itemCount items count
+     * @return index of the first column occupied by the child at {@code pos}
+     */
+    public int spanIndexInRow(int row, int pos, int itemCount) {
+        int start = firstPositionInRow(row, itemCount);
+        if (spanSizeProvider == null || isEstimatedRow(row)) {
+            return pos - start;
+        }
+        int count = childCountForRow(row);
+        int index = 0;
+        for (int p = start; p < pos; p++) {
+            index += spanSize(p, count);
+        }
+        return index;
+    }
+
+    /**
+     * Finds the child, which occupies horizontal offset {@code x} in the {@code row}. Margins
+     * between children are not considered as part of any child.
+     *
+     * @param row       row number
+     * @param x         horizontal offset
+     * @param itemCount items count
+     * @return adapter position of the child, or {@link #NO_POSITION}, if there is no child
+     */
+    public int findPositionInRow(int row, int x, int itemCount) {
+        if (row < 0) {
+            return NO_POSITION;
+        }
+        int start = firstPositionInRow(row, itemCount);
+        if (start >= itemCount) {
+            return NO_POSITION;
+        }
+        if (isHeaderRow(row)) {
+            return x >= 0 && x < availableWidth ? start : NO_POSITION;
+        }
+        int count = childCountForRow(row);
+        int dx = x - centerOffset(count);
+        if (dx < 0) {
+            return NO_POSITION;
+        }
+        int columnWidth = childSize + marginHorizontal;
+        int column = dx / columnWidth;
+        if (column >= count) {
+            return NO_POSITION;
+        }
+        int end = Math.min(itemCount, firstPositionInRow(row + 1, itemCount));
+        if (spanSizeProvider == null || isEstimatedRow(row)) {
+            int pos = start + column;
+            return pos < end && dx - column * columnWidth < childSize ? pos : NO_POSITION;
+        }
+        // walk the row to find the child, which occupies the column
+        for (int pos = start, index = 0; pos < end; pos++) {
+            int span = spanSize(pos, count);
+            if (column < index + span) {
+                return dx - index * columnWidth < getChildWidth(span) ? pos : NO_POSITION;
+            }
+            index += span;
+        }
+        return NO_POSITION;
+    }
+
+    /**
+     * Sets positions of the section headers. Each header occupies an entire row of the
+     * {@code height}, column pattern starts over in the row after it. Rows of the sections are
+     * indexed, so row and offset lookups are binary searches over sections.
+     *
+     * @param positions adapter positions of the headers in ascending order
+     * @param count     count of the headers in {@code positions}
+     * @param height    height of the header rows
+     * @param itemCount items count
+     */
+    public void setSectionHeaders(int[] positions, int count, int height, int itemCount) {
+        if (spanSizeProvider != null && count > 0) {
+            throw new IllegalStateException("Section headers are not supported with span sizes");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height must be > 0, found: " + height);
+        }
+        if (sectionHeaderPositions.length < count) {
+            sectionHeaderPositions = new int[count];
+            sectionHeaderRows = new int[count];
+        }
+        int prev = -1;
+        for (int i = 0; i < count; i++) {
+            int pos = positions[i];
+            if (pos <= prev || pos >= itemCount) {
+                throw new IllegalArgumentException("Header positions must be ascending and less than" +
+                        " items count (" + itemCount + "), but found " + pos + " at index " + i);
+            }
+            sectionHeaderPositions[i] = pos;
+            prev = pos;
+        }
+        sectionsCount = count;
+        headerHeight = height;
+        updateSectionHeaderRows();
+    }
+
+    /**
+     * Removes section headers, set by {@link #setSectionHeaders(int[], int, int, int)}.
+     */
+    public void clearSectionHeaders() {
+        sectionsCount = 0;
+    }
+
+    /**
+     * @return count of section headers
+     */
+    public int getSectionsCount() {
+        return sectionsCount;
+    }
+
+    public int getHeaderHeight() {
+        return headerHeight;
+    }
+
+    /**
+     * @param row row number
+     * @return {@code true}, if the {@code row} contains a section header
+     */
+    public boolean isHeaderRow(int row) {
+        if (sectionsCount == 0) {
+            return false;
+        }
+        int section = sectionAt(sectionHeaderRows, row);
+        return section >= 0 && sectionHeaderRows[section] == row;
+    }
+
+    /**
+     * Computes row numbers of the section headers, every section is followed by the rows of its
+     * children.
+     */
+    private void updateSectionHeaderRows() {
+        int row = 0;
+        int start = 0;
+        for (int i = 0; i < sectionsCount; i++) {
+            int pos = sectionHeaderPositions[i];
+            if (pos > start) {
+                // rows of the children of the previous section
+                row += columnPattern.rowForPosition(pos - start - 1) + 1;
+            }
+            sectionHeaderRows[i] = row++;
+            start = pos + 1;
+        }
+    }
+
+    /**
+     * @param values {@link #sectionHeaderPositions} or {@link #sectionHeaderRows}
+     * @param value  value to search for
+     * @return index of the last section, which value is less than or equal to the {@code value},
+     * or -1, if {@code value} is before the first section
+     */
+    private int sectionAt(int[] values, int value) {
+        if (sectionsCount == 0 || values[0] > value) {
+            return -1;
+        }
+        return floorIndex(values, sectionsCount, value);
+    }
+
+    private int sectionRowForPosition(int pos) {
+        int section = sectionAt(sectionHeaderPositions, pos);
+        if (section < 0) {
+            // children before the first header
+            return columnPattern.rowForPosition(pos);
+        }
+        int header = sectionHeaderPositions[section];
+        if (pos == header) {
+            return sectionHeaderRows[section];
+        }
+        return sectionHeaderRows[section] + 1 + columnPattern.rowForPosition(pos - header - 1);
+    }
+
+    private int sectionFirstPositionInRow(int row, int itemCount) {
+        int section = sectionAt(sectionHeaderRows, row);
+        int end = section + 1 < sectionsCount ? sectionHeaderPositions[section + 1] : itemCount;
+        if (section < 0) {
+            return Math.min(end, columnPattern.firstPositionInRow(row));
+        }
+        int headerRow = sectionHeaderRows[section];
+        if (row == headerRow) {
+            return sectionHeaderPositions[section];
+        }
+        int header = sectionHeaderPositions[section];
+        return Math.min(end, header + 1 + columnPattern.firstPositionInRow(row - headerRow - 1));
+    }
+
+    /**
+     * Resets cached rows of the {@link SpanSizeProvider}, so they will be computed again on demand.
+     */
+    public void invalidateSpanRows() {
+        resetSpanRows();
+        spanRowsVersion++;
+    }
+
+    private void resetSpanRows() {
+        spanRowStarts[0] = 0;
+        spanRowStartsCount = 1;
+        spanRowsBaseRow = 0;
+    }
+
+    /**
+     * Invalidates cached rows, which follow the row containing {@code pos}.
+     *
+     * @param pos first changed adapter position
+     * @return {@code true}, if rows could change
+     */
+    public boolean invalidateSpanRowsFrom(int pos) {
+        if (spanSizeProvider == null) {
+            return false;
+        }
+        spanRowsVersion++;
+        if (spanRowsBaseRow > 0 && pos <= spanRowStarts[0]) {
+            // partial rows were started before the change, start them over
+            invalidateSpanRows();
+            return true;
+        }
+        // start of the row containing pos is valid, unless it equals pos: the previous row
+        // could be ended by the end of the data
+        if (pos > 0) {
+            spanRowStartsCount = Math.min(spanRowStartsCount,
+                    floorIndex(spanRowStarts, spanRowStartsCount, pos - 1) + 1);
+        } else {
+            spanRowStartsCount = 1;
+        }
+        return true;
+    }
+
+    /**
+     * Starts computing span rows at the position, which is a few rows before the {@code position},
+     * so rows around it could be resolved without computing all the rows before. Row numbers of
+     * the partial rows are estimated and will be replaced with the exact ones, when the complete
+     * table is published with {@link #publishSpanRowTable(SpanRowTable, int)}.
+     * <p>
+     * Does nothing, if the rows up to the {@code position} are already known.
+     *
+     * @param position adapter position
+     */
+    public void beginPartialSpanRows(int position) {
+        if (spanSizeProvider == null || spanRowStarts[0] <= position
+                && position < spanRowStarts[spanRowStartsCount - 1]) {
+            return;
+        }
+        int start = position - PARTIAL_ROWS_BEFORE * columnPattern.getMaxCount();
+        if (start <= 0) {
+            // rows before the position are cheap to compute
+            if (spanRowsBaseRow > 0) {
+                resetSpanRows();
+            }
+            return;
+        }
+        if (spanRowsBaseRow == 0 && start <= spanRowStarts[spanRowStartsCount - 1]) {
+            // known rows almost reach the position
+            return;
+        }
+        spanRowStarts[0] = start;
+        spanRowStartsCount = 1;
+        // the first row of the column pattern, which starts at or after the start, so estimated
+        // rows before it never contain more children than columns
+        spanRowsBaseRow = columnPattern.rowForPosition(start - 1) + 1;
+    }
+
+    /**
+     * @return distance between positions of the column pattern and adapter positions of the rows
+     * before partial span rows, which are laid out as rows of the column pattern
+     */
+    private int getEstimatedRowsShift() {
+        return columnPattern.firstPositionInRow(spanRowsBaseRow) - spanRowStarts[0];
+    }
+
+    /**
+     * @param itemCount items count
+     * @return {@code true}, if exact rows for all items are known
+     */
+    public boolean isSpanRowsComplete(int itemCount) {
+        return spanSizeProvider == null
+                || spanRowsBaseRow == 0 && spanRowStarts[spanRowStartsCount - 1] >= itemCount;
+    }
+
+    /**
+     * @param itemCount items count
+     * @return rows count, estimated for the items, which rows are not computed yet: from rows
+     * count of the last published table (see {@link #publishSpanRowTable(SpanRowTable, int)}),
+     * if any, otherwise from the column pattern
+     */
+    public int getEstimatedRowsCount(int itemCount) {
+        if (isSpanRowsComplete(itemCount)) {
+            return getRowsCount(itemCount);
+        }
+        int lastRow = spanRowsBaseRow + spanRowStartsCount - 1;
+        int lastStart = spanRowStarts[spanRowStartsCount - 1];
+        int remaining = itemCount - lastStart;
+        int remainingRows;
+        if (publishedItemCount > 0) {
+            // rows are rebuilt after items change, keep the previous rows count, adjusted for the
+            // added or removed items with the average count of items per row
+            long delta = (long) (itemCount - publishedItemCount) * publishedRowsCount
+                    / publishedItemCount;
+            remainingRows = publishedRowsCount - lastRow + (int) delta;
+            if (remaining > 0) {
+                remainingRows = Math.max(1, remainingRows);
+            }
+        } else {
+            int avg = estimateItemsPerRow();
+            remainingRows = (remaining + avg - 1) / avg;
+        }
+        return Math.max(1, lastRow + Math.max(0, remainingRows));
+    }
+
+    /**
+     * @return version of span rows, changes whenever they become invalid
+     */
+    public int getSpanRowsVersion() {
+        return spanRowsVersion;
+    }
+
+    /**
+     * Replaces span rows with the complete {@code table}. Ownership of the table is transferred to
+     * this geometry.
+     *
+     * @param table   table, built with the current column pattern and span size provider
+     * @param version {@link #getSpanRowsVersion()} at the moment the build was started
+     * @return {@code true}, if table was published, {@code false}, if rows were invalidated since
+     * the build was started
+     */
+    public boolean publishSpanRowTable(SpanRowTable table, int version) {
+        if (version != spanRowsVersion) {
+            return false;
+        }
+        spanRowStarts = table.starts;
+        spanRowStartsCount = table.count;
+        spanRowsBaseRow = 0;
+        publishedRowsCount = table.getRowsCount();
+        publishedItemCount = table.starts[table.count - 1];
+        return true;
+    }
+
+    /**
+     * @return copy of the exact span rows, which are known starting from the first row, so
+     * building of the table could be continued after them (see
+     * {@link SpanRowTable#build(ColumnPattern, SpanSizeProvider, int, SpanRowTable)}), or
+     * {@code null}, if there are no such rows
+     */
+    public SpanRowTable copyKnownSpanRows() {
+        if (spanSizeProvider == null || spanRowsBaseRow > 0 || spanRowStartsCount == 1) {
+            return null;
+        }
+        return new SpanRowTable(Arrays.copyOf(spanRowStarts, spanRowStartsCount), spanRowStartsCount);
+    }
+
+    /**
+     * @return average count of items in a row of the column pattern
+     */
+    private int estimateItemsPerRow() {
+        return Math.max(1, columnPattern.getCycleSize() / columnPattern.getCycleLength());
+    }
+
+    /**
+     * Computes start of the row, next to the last known one, and appends it to
+     * {@link #spanRowStarts}.
+     *
+     * @param itemCount items count
+     * @return {@code false}, if all rows are known
+     */
+    private boolean appendSpanRow(int itemCount) {
+        int index = spanRowStartsCount - 1;
+        int pos = spanRowStarts[index];
+        if (pos >= itemCount) {
+            return false;
+        }
+        pos = nextRowStart(columnPattern, spanSizeProvider, spanRowsBaseRow + index, pos, itemCount);
+        if (spanRowStartsCount == spanRowStarts.length) {
+            spanRowStarts = Arrays.copyOf(spanRowStarts, spanRowStarts.length * 2);
+        }
+        spanRowStarts[spanRowStartsCount++] = pos;
+        return true;
+    }
+
+    /**
+     * @param pattern   column pattern
+     * @param provider  span size provider, if {@code null}, every child occupies a single column
+     * @param row       row number
+     * @param start     adapter position of the first child in the {@code row}
+     * @param itemCount items count
+     * @return adapter position of the first child in the row next to the {@code row}
+     */
+    static int nextRowStart(ColumnPattern pattern, SpanSizeProvider provider, int row, int start,
+            int itemCount) {
+        int count = pattern.childCountForRow(row);
+        int used = 0;
+        int pos = start;
+        while (pos < itemCount) {
+            int span = provider == null ? 1 : Math.max(1, Math.min(count, provider.getSpanSize(pos)));
+            if (used + span > count) {
+                break;
+            }
+            used += span;
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @param array  sorted array
+     * @param length count of elements to search in
+     * @param value  value to search for
+     * @return index of the last element, which is less than or equal to the {@code value}
+     */
+    static int floorIndex(int[] array, int length, int value) {
+        int lo = 0;
+        int hi = length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (array[mid] <= value) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Provides count of columns occupied by each child.
+     */
+    public interface SpanSizeProvider {
+
+        /**
+         * @param position adapter position
+         * @return count of columns occupied by the child at {@code position}
+         */
+        int getSpanSize(int position);
+    }
+
+}
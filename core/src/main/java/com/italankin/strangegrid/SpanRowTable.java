@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import java.util.Arrays;
+
+/**
+ * Complete table of span rows, which could be built on a background thread and then published to
+ * {@link GridGeometry}.
+ */
+public final class SpanRowTable {
+
+    /**
+     * Adapter positions of the first child of each row, the last element is items count
+     */
+    final int[] starts;
+    final int count;
+
+    SpanRowTable(int[] starts, int count) {
+        this.starts = starts;
+        this.count = count;
+    }
+
+    /**
+     * @return rows count
+     */
+    public int getRowsCount() {
+        return Math.max(1, count - 1);
+    }
+
+    /**
+     * Builds the table. Does not touch any state shared with {@link GridGeometry}, so it is safe to
+     * call from any thread, as long as the {@code provider} is.
+     *
+     * @param pattern   column pattern
+     * @param provider  span size provider, if {@code null}, every child occupies a single column
+     * @param itemCount items count
+     * @return table
+     */
+    public static SpanRowTable build(ColumnPattern pattern, GridGeometry.SpanSizeProvider provider,
+            int itemCount) {
+        return build(pattern, provider, itemCount, null);
+    }
+
+    /**
+     * Builds the table, starting after the {@code known} rows, so only rows after the first
+     * changed item are computed again. Ownership of the {@code known} table is transferred to this
+     * method.
+     *
+     * @param pattern   column pattern
+     * @param provider  span size provider, if {@code null}, every child occupies a single column
+     * @param itemCount items count
+     * @param known     rows from the first one, which are valid for the current items (see
+     *                  {@link GridGeometry#copyKnownSpanRows()}), or {@code null} to build all rows
+     * @return table
+     */
+    public static SpanRowTable build(ColumnPattern pattern, GridGeometry.SpanSizeProvider provider,
+            int itemCount, SpanRowTable known) {
+        int avg = Math.max(1, pattern.getCycleSize() / pattern.getCycleLength());
+        int capacity = Math.max(16, itemCount / avg + 2);
+        int[] starts;
+        int count;
+        if (known != null) {
+            starts = known.starts.length < capacity ? Arrays.copyOf(known.starts, capacity)
+                    : known.starts;
+            count = known.count;
+        } else {
+            starts = new int[capacity];
+            count = 1;
+        }
+        int pos = starts[count - 1];
+        while (pos < itemCount) {
+            pos = GridGeometry.nextRowStart(pattern, provider, count - 1, pos, itemCount);
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[count++] = pos;
+        }
+        return new SpanRowTable(starts, count);
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+
+public class ColumnPatternTest {
+
+    private static final int[][] PATTERNS = {{4}, {3, 4, 5}, {1, 8, 2, 7}, {5, 1}};
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyCounts() {
+        new ColumnPattern(new int[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCount() {
+        new ColumnPattern(new int[]{3, 0});
+    }
+
+    @Test
+    public void cycle() {
+        ColumnPattern pattern = new ColumnPattern(new int[]{3, 4, 5});
+        assertEquals(5, pattern.getMaxCount());
+        assertEquals(3, pattern.getCycleLength());
+        assertEquals(12, pattern.getCycleSize());
+        assertEquals(3, pattern.childCountForRow(0));
+        assertEquals(5, pattern.childCountForRow(5));
+        assertEquals(3, pattern.childCountForRow(6));
+    }
+
+    @Test
+    public void rowsMatchRowWalk() {
+        int itemCount = 1000;
+        for (int[] counts : PATTERNS) {
+            ColumnPattern pattern = new ColumnPattern(counts);
+            int[] starts = RowWalk.rowStarts(counts, null, itemCount);
+            int[] rows = RowWalk.rowsOfPositions(starts);
+            for (int row = 0; row < starts.length - 1; row++) {
+                assertEquals("row " + row, starts[row], pattern.firstPositionInRow(row));
+            }
+            for (int pos = 0; pos < itemCount; pos++) {
+                assertEquals("position " + pos, rows[pos], pattern.rowForPosition(pos));
+            }
+        }
+    }
+
+    @Test
+    public void countsAreCopied() {
+        int[] counts = {2, 3};
+        ColumnPattern pattern = new ColumnPattern(counts);
+        counts[0] = 7;
+        assertEquals(3, pattern.getMaxCount());
+        int[] array = pattern.toArray();
+        assertArrayEquals(new int[]{2, 3}, array);
+        assertNotSame(array, pattern.toArray());
+    }
+
+    @Test
+    public void equality() {
+        ColumnPattern pattern = new ColumnPattern(new int[]{2, 3});
+        assertEquals(new ColumnPattern(new int[]{2, 3}), pattern);
+        assertEquals(new ColumnPattern(new int[]{2, 3}).hashCode(), pattern.hashCode());
+        assertFalse(pattern.equals(new ColumnPattern(new int[]{3, 2})));
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GridGeometryTest {
+
+    private static final int WIDTH = 1000;
+    private static final int MARGIN = 8;
+    private static final int[][] PATTERNS = {{4}, {3, 4, 5}, {1, 8, 2, 7}};
+
+    static GridGeometry createGeometry(int[] counts) {
+        GridGeometry geometry = new GridGeometry();
+        geometry.setColumnPattern(new ColumnPattern(counts));
+        geometry.setMargins(MARGIN, MARGIN);
+        geometry.setAvailableWidth(WIDTH);
+        return geometry;
+    }
+
+    @Test
+    public void rowsMatchRowWalk() {
+        int itemCount = 1000;
+        for (int[] counts : PATTERNS) {
+            GridGeometry geometry = createGeometry(counts);
+            assertRows(geometry, RowWalk.rowStarts(counts, null, itemCount));
+        }
+    }
+
+    @Test
+    public void rowsOfEmptyData() {
+        GridGeometry geometry = createGeometry(new int[]{3});
+        assertEquals(1, geometry.getRowsCount(0));
+        assertEquals(0, geometry.firstPositionInRow(0, 0));
+    }
+
+    @Test
+    public void childSize() {
+        GridGeometry geometry = createGeometry(new int[]{3, 4, 5});
+        assertEquals((WIDTH - MARGIN * 4) / 5, geometry.getChildSize());
+        assertEquals(geometry.getChildSize() + MARGIN, geometry.getRowHeight());
+        assertEquals(geometry.getChildSize() * 3 + MARGIN * 2, geometry.getContentHeight(3));
+    }
+
+    @Test
+    public void childrenAreCentered() {
+        GridGeometry geometry = createGeometry(new int[]{3, 4, 5});
+        int childSize = geometry.getChildSize();
+        for (int count = 1; count <= 5; count++) {
+            int left = geometry.getChildLeft(count, 0);
+            int right = geometry.getChildLeft(count, count - 1) + childSize;
+            assertTrue(left >= 0 && right <= WIDTH);
+            assertTrue(Math.abs(left - (WIDTH - right)) <= 1);
+            for (int i = 1; i < count; i++) {
+                assertEquals(childSize + MARGIN,
+                        geometry.getChildLeft(count, i) - geometry.getChildLeft(count, i - 1));
+            }
+        }
+        assertEquals(childSize * 2 + MARGIN, geometry.getChildWidth(2));
+    }
+
+    @Test
+    public void findPositionInRow() {
+        int itemCount = 50;
+        GridGeometry geometry = createGeometry(new int[]{3, 4, 5});
+        int childSize = geometry.getChildSize();
+        int rowsCount = geometry.getRowsCount(itemCount);
+        for (int row = 0; row < rowsCount; row++) {
+            int count = geometry.childCountForRow(row);
+            int start = geometry.firstPositionInRow(row, itemCount);
+            int end = Math.min(itemCount, geometry.firstPositionInRow(row + 1, itemCount));
+            for (int x = -1; x <= WIDTH; x++) {
+                int expected = GridGeometry.NO_POSITION;
+                for (int pos = start; pos < end; pos++) {
+                    int left = geometry.getChildLeft(count, pos - start);
+                    if (x >= left && x < left + childSize) {
+                        expected = pos;
+                    }
+                }
+                assertEquals("row " + row + ", x " + x, expected,
+                        geometry.findPositionInRow(row, x, itemCount));
+            }
+        }
+        assertEquals(GridGeometry.NO_POSITION, geometry.findPositionInRow(-1, WIDTH / 2, itemCount));
+        assertEquals(GridGeometry.NO_POSITION, geometry.findPositionInRow(rowsCount, WIDTH / 2, itemCount));
+    }
+
+    @Test
+    public void partialSpanRows() {
+        int itemCount = 100000;
+        int[] counts = {3, 4, 5};
+        int[] spans = RowWalk.randomSpans(itemCount, 3, 1);
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+        geometry.beginPartialSpanRows(itemCount / 2);
+        assertFalse(geometry.isSpanRowsComplete(itemCount));
+
+        // rows before and after the start of the partial rows are consistent
+        int rowsCount = geometry.getEstimatedRowsCount(itemCount);
+        int end = geometry.rowForPosition(itemCount / 2, itemCount) + 10;
+        assertEquals(0, geometry.firstPositionInRow(0, itemCount));
+        for (int row = 0; row < end; row++) {
+            int start = geometry.firstPositionInRow(row, itemCount);
+            int next = geometry.firstPositionInRow(row + 1, itemCount);
+            assertTrue("row " + row, start <= next);
+            int count = geometry.childCountForRow(row);
+            int used = 0;
+            for (int pos = start; pos < next; pos++) {
+                assertEquals("position " + pos, row, geometry.rowForPosition(pos, itemCount));
+                used += geometry.spanSizeInRow(row, pos, count);
+            }
+            assertTrue("row " + row + " does not fit " + count + " columns", used <= count);
+        }
+        assertTrue(rowsCount > end);
+
+        int version = geometry.getSpanRowsVersion();
+        SpanRowTable table = SpanRowTable.build(geometry.getColumnPattern(),
+                geometry.getSpanSizeProvider(), itemCount);
+        assertTrue(geometry.publishSpanRowTable(table, version));
+        assertTrue(geometry.isSpanRowsComplete(itemCount));
+        assertRows(geometry, RowWalk.rowStarts(counts, spans, itemCount));
+    }
+
+    @Test
+    public void outdatedSpanRowTable() {
+        int itemCount = 1000;
+        int[] counts = {3, 4, 5};
+        int[] spans = RowWalk.randomSpans(itemCount, 3, 2);
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+        int version = geometry.getSpanRowsVersion();
+        SpanRowTable table = SpanRowTable.build(geometry.getColumnPattern(),
+                geometry.getSpanSizeProvider(), itemCount);
+        spans[10] = 3;
+        geometry.invalidateSpanRowsFrom(10);
+        assertFalse(geometry.publishSpanRowTable(table, version));
+        assertRows(geometry, RowWalk.rowStarts(counts, spans, itemCount));
+    }
+
+    /**
+     * Asserts that rows of the {@code geometry} match rows of {@link RowWalk}.
+     */
+    static void assertRows(GridGeometry geometry, int[] starts) {
+        int itemCount = starts[starts.length - 1];
+        int rowsCount = starts.length - 1;
+        int[] rows = RowWalk.rowsOfPositions(starts);
+        // positions first, so rows are computed on demand
+        for (int pos = 0; pos < itemCount; pos++) {
+            assertEquals("position " + pos, rows[pos], geometry.rowForPosition(pos, itemCount));
+        }
+        for (int row = 0; row < rowsCount; row++) {
+            assertEquals("row " + row, starts[row], geometry.firstPositionInRow(row, itemCount));
+        }
+        assertEquals(itemCount, Math.min(itemCount, geometry.firstPositionInRow(rowsCount, itemCount)));
+        assertEquals(rowsCount, geometry.getRowsCount(itemCount));
+    }
+
+}
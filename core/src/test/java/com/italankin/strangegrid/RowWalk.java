@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Reference implementation of rows, which walks over all items one by one.
+ */
+final class RowWalk {
+
+    private RowWalk() {
+    }
+
+    /**
+     * @param counts    column counts
+     * @param spans     span sizes of the items, {@code null}, if every item occupies a single column
+     * @param itemCount items count
+     * @return adapter positions of the first item of each row, followed by {@code itemCount}
+     */
+    static int[] rowStarts(int[] counts, int[] spans, int itemCount) {
+        int[] starts = new int[itemCount + 2];
+        int rows = 0;
+        int row = 0;
+        int used = 0;
+        for (int pos = 0; pos < itemCount; pos++) {
+            int count = counts[row % counts.length];
+            int span = spans == null ? 1 : Math.max(1, Math.min(count, spans[pos]));
+            if (used > 0 && used + span > count) {
+                row++;
+                used = 0;
+                count = counts[row % counts.length];
+                span = spans == null ? 1 : Math.max(1, Math.min(count, spans[pos]));
+            }
+            if (used == 0) {
+                starts[rows++] = pos;
+            }
+            used += span;
+        }
+        starts[rows++] = itemCount;
+        return Arrays.copyOf(starts, rows);
+    }
+
+    /**
+     * @param rowStarts result of {@link #rowStarts(int[], int[], int)}
+     * @return row number of each item
+     */
+    static int[] rowsOfPositions(int[] rowStarts) {
+        int itemCount = rowStarts[rowStarts.length - 1];
+        int[] rows = new int[itemCount];
+        for (int row = 0; row < rowStarts.length - 1; row++) {
+            for (int pos = rowStarts[row]; pos < rowStarts[row + 1]; pos++) {
+                rows[pos] = row;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return random span sizes from 1 to {@code maxSpan}
+     */
+    static int[] randomSpans(int itemCount, int maxSpan, long seed) {
+        Random random = new Random(seed);
+        int[] spans = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            spans[i] = 1 + random.nextInt(maxSpan);
+        }
+        return spans;
+    }
+
+    /**
+     * Span sizes backed by an array, which could be modified by tests.
+     */
+    static class ArraySpanSizes implements GridGeometry.SpanSizeProvider {
+        final int[] spans;
+
+        ArraySpanSizes(int[] spans) {
+            this.spans = spans;
+        }
+
+        @Override
+        public int getSpanSize(int position) {
+            return spans[position];
+        }
+    }
+
+}
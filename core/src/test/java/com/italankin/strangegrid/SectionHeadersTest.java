@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.italankin.strangegrid.GridGeometryTest.createGeometry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SectionHeadersTest {
+
+    private static final int ITEM_COUNT = 500;
+    private static final int HEADER_HEIGHT = 40;
+    private static final int[] HEADERS = {5, 6, 20, 77, 150, 151, 152, 400, ITEM_COUNT - 1};
+
+    @Test
+    public void rowsMatchRowWalk() {
+        int[][] patterns = {{4}, {3, 4, 5}, {1, 8, 2, 7}};
+        int[][] headers = {HEADERS, {0}, {0, 1, 2}, {ITEM_COUNT - 1}, {}};
+        for (int[] counts : patterns) {
+            for (int[] positions : headers) {
+                GridGeometry geometry = createGeometry(counts);
+                geometry.setSectionHeaders(positions, positions.length, HEADER_HEIGHT, ITEM_COUNT);
+                assertSections(geometry, counts, positions);
+            }
+        }
+    }
+
+    @Test
+    public void columnPatternChange() {
+        GridGeometry geometry = createGeometry(new int[]{4});
+        geometry.setSectionHeaders(HEADERS, HEADERS.length, HEADER_HEIGHT, ITEM_COUNT);
+        int[] counts = {2, 5};
+        geometry.setColumnPattern(new ColumnPattern(counts));
+        assertSections(geometry, counts, HEADERS);
+    }
+
+    @Test
+    public void clearSectionHeaders() {
+        int[] counts = {3, 4, 5};
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSectionHeaders(HEADERS, HEADERS.length, HEADER_HEIGHT, ITEM_COUNT);
+        geometry.clearSectionHeaders();
+        assertEquals(0, geometry.getSectionsCount());
+        GridGeometryTest.assertRows(geometry, RowWalk.rowStarts(counts, null, ITEM_COUNT));
+    }
+
+    @Test
+    public void headerHitTest() {
+        GridGeometry geometry = createGeometry(new int[]{3});
+        geometry.setSectionHeaders(HEADERS, HEADERS.length, HEADER_HEIGHT, ITEM_COUNT);
+        int row = geometry.rowForPosition(HEADERS[2], ITEM_COUNT);
+        assertTrue(geometry.isHeaderRow(row));
+        assertEquals(1, geometry.childCountForRow(row));
+        assertEquals(HEADERS[2], geometry.findPositionInRow(row, 0, ITEM_COUNT));
+        assertEquals(HEADERS[2], geometry.findPositionInRow(row, geometry.getAvailableWidth() - 1,
+                ITEM_COUNT));
+        assertEquals(GridGeometry.NO_POSITION, geometry.findPositionInRow(row,
+                geometry.getAvailableWidth(), ITEM_COUNT));
+        assertFalse(geometry.isHeaderRow(row + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsortedHeaders() {
+        GridGeometry geometry = createGeometry(new int[]{3});
+        geometry.setSectionHeaders(new int[]{10, 5}, 2, HEADER_HEIGHT, ITEM_COUNT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void headerOutOfRange() {
+        GridGeometry geometry = createGeometry(new int[]{3});
+        geometry.setSectionHeaders(new int[]{ITEM_COUNT}, 1, HEADER_HEIGHT, ITEM_COUNT);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void headersWithSpans() {
+        GridGeometry geometry = createGeometry(new int[]{3});
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(new int[ITEM_COUNT]));
+        geometry.setSectionHeaders(HEADERS, HEADERS.length, HEADER_HEIGHT, ITEM_COUNT);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void spansWithHeaders() {
+        GridGeometry geometry = createGeometry(new int[]{3});
+        geometry.setSectionHeaders(HEADERS, HEADERS.length, HEADER_HEIGHT, ITEM_COUNT);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(new int[ITEM_COUNT]));
+    }
+
+    /**
+     * Asserts rows and offsets of the {@code geometry} against a walk over all items, where each
+     * header occupies its own row and column counts start over after it.
+     */
+    private static void assertSections(GridGeometry geometry, int[] counts, int[] headers) {
+        int[] starts = new int[ITEM_COUNT + 1];
+        boolean[] headerRows = new boolean[ITEM_COUNT + 1];
+        int rowsCount = 0;
+        int start = 0;
+        for (int i = 0; i <= headers.length; i++) {
+            int end = i < headers.length ? headers[i] : ITEM_COUNT;
+            if (end > start) {
+                // rows of the section, as if it was a separate grid
+                int[] sectionStarts = RowWalk.rowStarts(counts, null, end - start);
+                for (int row = 0; row < sectionStarts.length - 1; row++) {
+                    starts[rowsCount++] = start + sectionStarts[row];
+                }
+            }
+            if (i < headers.length) {
+                headerRows[rowsCount] = true;
+                starts[rowsCount++] = end;
+            }
+            start = end + 1;
+        }
+        starts[rowsCount] = ITEM_COUNT;
+        starts = Arrays.copyOf(starts, rowsCount + 1);
+        if (rowsCount > 0) {
+            GridGeometryTest.assertRows(geometry, starts);
+        }
+
+        int childSize = geometry.getChildSize();
+        int margin = geometry.getMarginVertical();
+        int top = 0;
+        for (int row = 0; row < rowsCount; row++) {
+            assertEquals("row " + row, headerRows[row], geometry.isHeaderRow(row));
+            int size = headerRows[row] ? HEADER_HEIGHT : childSize;
+            assertEquals("row " + row, size, geometry.getRowSize(row));
+            assertEquals("row " + row, top, geometry.getRowTop(row));
+            for (int offset = top, end = top + size + margin; offset < end; offset++) {
+                assertEquals("offset " + offset, row, geometry.rowAtOffset(offset));
+            }
+            top += size + margin;
+        }
+        assertEquals(top - margin, geometry.getContentHeight(rowsCount));
+    }
+
+}
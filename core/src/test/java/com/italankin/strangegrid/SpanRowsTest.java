@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Igor Talankin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.italankin.strangegrid;
+
+import org.junit.Test;
+
+import static com.italankin.strangegrid.GridGeometryTest.assertRows;
+import static com.italankin.strangegrid.GridGeometryTest.createGeometry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpanRowsTest {
+
+    private static final int ITEM_COUNT = 2000;
+    private static final int[][] PATTERNS = {{4}, {3, 4, 5}, {1, 8, 2, 7}};
+
+    @Test
+    public void rowsMatchRowWalk() {
+        for (int[] counts : PATTERNS) {
+            // spans greater than column counts are clamped
+            for (int maxSpan = 1; maxSpan <= 9; maxSpan += 4) {
+                int[] spans = RowWalk.randomSpans(ITEM_COUNT, maxSpan, maxSpan);
+                GridGeometry geometry = createGeometry(counts);
+                geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+                assertRows(geometry, RowWalk.rowStarts(counts, spans, ITEM_COUNT));
+            }
+        }
+    }
+
+    @Test
+    public void rowsComputedFromRowNumbers() {
+        int[] counts = {3, 4, 5};
+        int[] spans = RowWalk.randomSpans(ITEM_COUNT, 3, 3);
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+        int[] starts = RowWalk.rowStarts(counts, spans, ITEM_COUNT);
+        // the last row first, so rows are computed by firstPositionInRow
+        int lastRow = starts.length - 2;
+        assertEquals(starts[lastRow], geometry.firstPositionInRow(lastRow, ITEM_COUNT));
+        assertRows(geometry, starts);
+    }
+
+    @Test
+    public void spanRowTable() {
+        for (int[] counts : PATTERNS) {
+            int[] spans = RowWalk.randomSpans(ITEM_COUNT, 3, 4);
+            int[] starts = RowWalk.rowStarts(counts, spans, ITEM_COUNT);
+            SpanRowTable table = SpanRowTable.build(new ColumnPattern(counts),
+                    new RowWalk.ArraySpanSizes(spans), ITEM_COUNT);
+            assertEquals(starts.length - 1, table.getRowsCount());
+            assertEquals(starts.length, table.count);
+            for (int i = 0; i < starts.length; i++) {
+                assertEquals(starts[i], table.starts[i]);
+            }
+        }
+    }
+
+    @Test
+    public void spanRowTableFromKnownRows() {
+        int[] counts = {3, 4, 5};
+        int[] spans = RowWalk.randomSpans(ITEM_COUNT, 3, 8);
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+        assertNull(geometry.copyKnownSpanRows());
+        // compute rows up to the middle, then change an item before it
+        geometry.rowForPosition(ITEM_COUNT / 2, ITEM_COUNT);
+        int pos = ITEM_COUNT / 4;
+        spans[pos] = spans[pos] == 1 ? 3 : 1;
+        geometry.invalidateSpanRowsFrom(pos);
+
+        SpanRowTable known = geometry.copyKnownSpanRows();
+        assertTrue(known.starts[known.count - 1] <= pos);
+        SpanRowTable table = SpanRowTable.build(geometry.getColumnPattern(),
+                geometry.getSpanSizeProvider(), ITEM_COUNT, known);
+        int[] starts = RowWalk.rowStarts(counts, spans, ITEM_COUNT);
+        assertEquals(starts.length, table.count);
+        for (int i = 0; i < starts.length; i++) {
+            assertEquals(starts[i], table.starts[i]);
+        }
+    }
+
+    @Test
+    public void estimatedRowsCountAfterUpdate() {
+        int[] counts = {3, 4, 5};
+        int[] spans = RowWalk.randomSpans(ITEM_COUNT, 3, 9);
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+        SpanRowTable table = SpanRowTable.build(geometry.getColumnPattern(),
+                geometry.getSpanSizeProvider(), ITEM_COUNT);
+        assertTrue(geometry.publishSpanRowTable(table, geometry.getSpanRowsVersion()));
+        int rowsCount = geometry.getRowsCount(ITEM_COUNT);
+
+        // item is updated, but its span is unchanged
+        geometry.invalidateSpanRowsFrom(ITEM_COUNT / 2);
+        assertFalse(geometry.isSpanRowsComplete(ITEM_COUNT));
+        assertEquals(rowsCount, geometry.getEstimatedRowsCount(ITEM_COUNT));
+
+        // the same items are appended
+        int[] doubled = new int[ITEM_COUNT * 2];
+        System.arraycopy(spans, 0, doubled, 0, ITEM_COUNT);
+        System.arraycopy(spans, 0, doubled, ITEM_COUNT, ITEM_COUNT);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(doubled));
+        table = SpanRowTable.build(geometry.getColumnPattern(),
+                geometry.getSpanSizeProvider(), ITEM_COUNT);
+        assertTrue(geometry.publishSpanRowTable(table, geometry.getSpanRowsVersion()));
+        geometry.invalidateSpanRowsFrom(ITEM_COUNT);
+        int estimated = geometry.getEstimatedRowsCount(ITEM_COUNT * 2);
+        int exact = RowWalk.rowStarts(counts, doubled, ITEM_COUNT * 2).length - 1;
+        assertTrue("estimated " + estimated + ", exact " + exact,
+                Math.abs(estimated - exact) <= exact / 100);
+    }
+
+    @Test
+    public void childrenFitRows() {
+        int[] counts = {3, 4, 5};
+        int[] spans = RowWalk.randomSpans(ITEM_COUNT, 4, 5);
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+        for (int row = 0, c = geometry.getRowsCount(ITEM_COUNT); row < c; row++) {
+            int count = geometry.childCountForRow(row);
+            int start = geometry.firstPositionInRow(row, ITEM_COUNT);
+            int end = Math.min(ITEM_COUNT, geometry.firstPositionInRow(row + 1, ITEM_COUNT));
+            int index = 0;
+            for (int pos = start; pos < end; pos++) {
+                assertEquals(index, geometry.spanIndexInRow(row, pos, ITEM_COUNT));
+                int span = geometry.spanSizeInRow(row, pos, count);
+                int left = geometry.getChildLeft(count, index);
+                int width = geometry.getChildWidth(span);
+                // hit the first and the last pixel of the child and the margin after it
+                assertEquals(pos, geometry.findPositionInRow(row, left, ITEM_COUNT));
+                assertEquals(pos, geometry.findPositionInRow(row, left + width - 1, ITEM_COUNT));
+                if (index + span < count) {
+                    assertEquals(GridGeometry.NO_POSITION,
+                            geometry.findPositionInRow(row, left + width, ITEM_COUNT));
+                }
+                index += span;
+            }
+            assertTrue("row " + row, index <= count);
+        }
+    }
+
+    @Test
+    public void invalidateSpanRowsFrom() {
+        int[] counts = {3, 4, 5};
+        int[] spans = RowWalk.randomSpans(ITEM_COUNT, 3, 6);
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+        assertRows(geometry, RowWalk.rowStarts(counts, spans, ITEM_COUNT));
+        int[] starts = RowWalk.rowStarts(counts, spans, ITEM_COUNT);
+        // changes at row starts, in the middle of rows and at the edges
+        int[] changed = {0, 1, starts[10], starts[10] + 1, starts[11] - 1, ITEM_COUNT / 2,
+                ITEM_COUNT - 1};
+        for (int pos : changed) {
+            int version = geometry.getSpanRowsVersion();
+            spans[pos] = spans[pos] == 1 ? 3 : 1;
+            assertTrue(geometry.invalidateSpanRowsFrom(pos));
+            assertTrue(geometry.getSpanRowsVersion() != version);
+            assertRows(geometry, RowWalk.rowStarts(counts, spans, ITEM_COUNT));
+        }
+    }
+
+    @Test
+    public void invalidateSpanRowsFromRemovedItems() {
+        int[] counts = {3, 4, 5};
+        int[] spans = RowWalk.randomSpans(ITEM_COUNT, 3, 7);
+        GridGeometry geometry = createGeometry(counts);
+        geometry.setSpanSizeProvider(new RowWalk.ArraySpanSizes(spans));
+        assertRows(geometry, RowWalk.rowStarts(counts, spans, ITEM_COUNT));
+        // items at the end are removed, the last row is ended by the end of the data
+        int itemCount = ITEM_COUNT - 7;
+        geometry.invalidateSpanRowsFrom(itemCount);
+        assertRows(geometry, RowWalk.rowStarts(counts, spans, itemCount));
+    }
+
+    @Test
+    public void invalidateWithoutSpans() {
+        GridGeometry geometry = createGeometry(new int[]{3});
+        assertFalse(geometry.invalidateSpanRowsFrom(0));
+    }
+
+}